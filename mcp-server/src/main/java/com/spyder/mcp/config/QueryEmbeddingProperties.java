@@ -0,0 +1,58 @@
+package com.spyder.mcp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "mcp.query-embedding")
+public class QueryEmbeddingProperties {
+    private Cache cache = new Cache();
+    private Batching batching = new Batching();
+
+    @Data
+    public static class Cache {
+        private boolean enabled = true;
+        private int maxEntries = 1024;
+        private Duration ttl = Duration.ofMinutes(30);
+
+        /**
+         * How letter case is treated when normalizing a query into a cache key.
+         */
+        private CasePolicy casePolicy = CasePolicy.LOWERCASE;
+    }
+
+    @Data
+    public static class Batching {
+        /**
+         * Coalesce concurrent query embeddings into batched inference calls.
+         */
+        private boolean enabled = true;
+        private int maxBatchSize = 16;
+
+        /**
+         * Longest a batch is held open for more queries under concurrent load.
+         * A query that arrives while the server is quiet is dispatched immediately.
+         */
+        private Duration maxWait = Duration.ofMillis(2);
+
+        /**
+         * Number of batches that may run at once; match it to the embedding session pool.
+         */
+        private int workers = 1;
+    }
+
+    public enum CasePolicy {
+        /**
+         * Queries differing only in case share an entry. Safe for uncased models such as bge-small-en.
+         */
+        LOWERCASE,
+        /**
+         * Case is part of the key.
+         */
+        PRESERVE
+    }
+}
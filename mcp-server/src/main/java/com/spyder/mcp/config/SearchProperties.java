@@ -0,0 +1,18 @@
+package com.spyder.mcp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "mcp.search")
+public class SearchProperties {
+    /**
+     * Time budget of one search tool call or REST request, covering query embedding and every
+     * Qdrant RPC it makes, hedges included. The remaining time is passed to Qdrant as the gRPC deadline.
+     */
+    private Duration deadline = Duration.ofSeconds(10);
+}
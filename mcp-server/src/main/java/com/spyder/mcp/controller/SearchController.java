@@ -1,10 +1,15 @@
 package com.spyder.mcp.controller;
 
+import com.spyder.mcp.model.BatchSearchQuery;
 import com.spyder.mcp.service.QdrantMcpSearchService;
+import com.spyder.qdrant.model.PayloadProjection;
+import com.spyder.qdrant.model.SearchFilter;
+import com.spyder.qdrant.model.SearchParameters;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 import java.util.Map;
@@ -18,77 +23,100 @@ public class SearchController {
     private final QdrantMcpSearchService searchService;
 
     @GetMapping("/similar")
-    public ResponseEntity<List<Map<String, Object>>> searchSimilar(
+    public Mono<ResponseEntity<List<Map<String, Object>>>> searchSimilar(
             @RequestParam String query,
-            @RequestParam(required = false, defaultValue = "3") Integer limit
+            @RequestParam(required = false, defaultValue = "3") Integer limit,
+            @RequestParam(required = false) String chapter,
+            @RequestParam(required = false) String heading,
+            @RequestParam(required = false) String subheading,
+            @RequestParam(required = false) Integer pageNumber,
+            @RequestParam(required = false) Integer pageFrom,
+            @RequestParam(required = false) Integer pageTo,
+            @RequestParam(required = false) String source,
+            @RequestParam(required = false) List<String> include,
+            @RequestParam(required = false) List<String> exclude,
+            @RequestParam(required = false) String content,
+            @RequestParam(required = false) Integer contentLength,
+            @RequestParam(required = false) Integer hnswEf,
+            @RequestParam(required = false) Boolean exact,
+            @RequestParam(required = false) Float scoreThreshold
     ) {
-        try {
-            log.info("REST: Searching similar chunks for query: '{}', limit: {}", query, limit);
-            List<Map<String, Object>> results = searchService.searchSimilarChunks(query, limit);
-            return ResponseEntity.ok(results);
-        } catch (Exception e) {
-            log.error("REST: Error searching similar chunks", e);
-            return ResponseEntity.internalServerError().build();
-        }
+        SearchFilter filter = new SearchFilter(chapter, heading, subheading, pageNumber, pageFrom, pageTo, source);
+        SearchParameters parameters = new SearchParameters(hnswEf, exact, scoreThreshold);
+        log.info("REST: Searching similar chunks for query: '{}', limit: {}, filter: {}", query, limit, filter);
+        return toResponse(Mono.fromCallable(() -> projection(include, exclude, content, contentLength))
+                .flatMap(projection -> searchService.searchSimilarChunksAsync(query, limit, filter, projection, parameters)));
     }
 
     @GetMapping("/filters")
-    public ResponseEntity<List<Map<String, Object>>> searchWithFilters(
+    public Mono<ResponseEntity<List<Map<String, Object>>>> searchWithFilters(
             @RequestParam(required = false) String chapter,
             @RequestParam(required = false) String heading,
             @RequestParam(required = false) String subheading,
             @RequestParam(required = false) Integer pageNumber,
-            @RequestParam(required = false, defaultValue = "50") Integer limit
+            @RequestParam(required = false, defaultValue = "50") Integer limit,
+            @RequestParam(required = false) List<String> include,
+            @RequestParam(required = false) List<String> exclude,
+            @RequestParam(required = false) String content,
+            @RequestParam(required = false) Integer contentLength
     ) {
-        try {
-            log.info("REST: Searching with filters - chapter: '{}', heading: '{}', subheading: '{}', page: {}, limit: {}", 
-                    chapter, heading, subheading, pageNumber, limit);
-            List<Map<String, Object>> results = searchService.searchWithFilters(chapter, heading, subheading, pageNumber, limit);
-            return ResponseEntity.ok(results);
-        } catch (IllegalArgumentException e) {
-            log.error("REST: Invalid parameters: {}", e.getMessage());
-            return ResponseEntity.badRequest().build();
-        } catch (Exception e) {
-            log.error("REST: Error searching with filters", e);
-            return ResponseEntity.internalServerError().build();
-        }
+        log.info("REST: Searching with filters - chapter: '{}', heading: '{}', subheading: '{}', page: {}, limit: {}", 
+                chapter, heading, subheading, pageNumber, limit);
+        return toResponse(Mono.fromCallable(() -> projection(include, exclude, content, contentLength))
+                .flatMap(projection -> searchService.searchWithFiltersAsync(chapter, heading, subheading, pageNumber, limit, projection)));
     }
 
     @PostMapping("/filters")
-    public ResponseEntity<List<Map<String, Object>>> searchWithFiltersPost(
+    public Mono<ResponseEntity<List<Map<String, Object>>>> searchWithFiltersPost(
             @RequestBody FilterSearchRequest request
     ) {
-        try {
-            log.info("REST: POST Searching with filters - request: {}", request);
-            List<Map<String, Object>> results = searchService.searchWithFilters(
-                    request.getChapter(),
-                    request.getHeading(),
-                    request.getSubheading(),
-                    request.getPageNumber(),
-                    request.getLimit()
-            );
-            return ResponseEntity.ok(results);
-        } catch (IllegalArgumentException e) {
-            log.error("REST: Invalid parameters: {}", e.getMessage());
-            return ResponseEntity.badRequest().build();
-        } catch (Exception e) {
-            log.error("REST: Error searching with filters", e);
-            return ResponseEntity.internalServerError().build();
-        }
+        log.info("REST: POST Searching with filters - request: {}", request);
+        return toResponse(searchService.searchWithFiltersAsync(
+                request.getChapter(),
+                request.getHeading(),
+                request.getSubheading(),
+                request.getPageNumber(),
+                request.getLimit(),
+                request.getProjection()
+        ));
     }
 
     @PostMapping("/similar")
-    public ResponseEntity<List<Map<String, Object>>> searchSimilarPost(
+    public Mono<ResponseEntity<List<Map<String, Object>>>> searchSimilarPost(
             @RequestBody SimilarSearchRequest request
     ) {
-        try {
-            log.info("REST: POST Searching similar chunks for request: {}", request);
-            List<Map<String, Object>> results = searchService.searchSimilarChunks(request.getQuery(), request.getLimit());
-            return ResponseEntity.ok(results);
-        } catch (Exception e) {
-            log.error("REST: Error searching similar chunks", e);
-            return ResponseEntity.internalServerError().build();
-        }
+        log.info("REST: POST Searching similar chunks for request: {}", request);
+        return toResponse(searchService.searchSimilarChunksAsync(request.getQuery(), request.getLimit(),
+                request.getFilter(), request.getProjection(), request.getParameters()));
+    }
+
+    @PostMapping("/similar/batch")
+    public Mono<ResponseEntity<List<Map<String, Object>>>> searchSimilarBatch(
+            @RequestBody BatchSearchRequest request
+    ) {
+        log.info("REST: POST Batch searching similar chunks for request: {}", request);
+        return toResponse(searchService.searchSimilarChunksBatchAsync(request.getQueries(), request.getDedupe(),
+                request.getProjection()));
+    }
+
+    /**
+     * Projection from query parameters; an unknown content mode is rejected with 400.
+     */
+    private static PayloadProjection projection(List<String> include, List<String> exclude, String content, Integer contentLength) {
+        return new PayloadProjection(include, exclude, PayloadProjection.ContentMode.fromValue(content), contentLength);
+    }
+
+    private Mono<ResponseEntity<List<Map<String, Object>>>> toResponse(Mono<List<Map<String, Object>>> results) {
+        return results
+                .map(ResponseEntity::ok)
+                .onErrorResume(IllegalArgumentException.class, e -> {
+                    log.error("REST: Invalid parameters: {}", e.getMessage());
+                    return Mono.just(ResponseEntity.badRequest().build());
+                })
+                .onErrorResume(e -> {
+                    log.error("REST: Error searching", e);
+                    return Mono.just(ResponseEntity.internalServerError().build());
+                });
     }
 
     // DTO classes
@@ -98,6 +126,7 @@ public class SearchController {
         private String subheading;
         private Integer pageNumber;
         private Integer limit = 50;
+        private PayloadProjection projection;
 
         public String getChapter() { return chapter; }
         public void setChapter(String chapter) { this.chapter = chapter; }
@@ -114,6 +143,9 @@ public class SearchController {
         public Integer getLimit() { return limit; }
         public void setLimit(Integer limit) { this.limit = limit; }
 
+        public PayloadProjection getProjection() { return projection; }
+        public void setProjection(PayloadProjection projection) { this.projection = projection; }
+
         @Override
         public String toString() {
             return "FilterSearchRequest{" +
@@ -122,6 +154,7 @@ public class SearchController {
                     ", subheading='" + subheading + '\'' +
                     ", pageNumber=" + pageNumber +
                     ", limit=" + limit +
+                    ", projection=" + projection +
                     '}';
         }
     }
@@ -129,6 +162,9 @@ public class SearchController {
     public static class SimilarSearchRequest {
         private String query;
         private Integer limit = 3;
+        private SearchFilter filter;
+        private PayloadProjection projection;
+        private SearchParameters parameters;
 
         public String getQuery() { return query; }
         public void setQuery(String query) { this.query = query; }
@@ -136,11 +172,47 @@ public class SearchController {
         public Integer getLimit() { return limit; }
         public void setLimit(Integer limit) { this.limit = limit; }
 
+        public PayloadProjection getProjection() { return projection; }
+        public void setProjection(PayloadProjection projection) { this.projection = projection; }
+
+        public SearchFilter getFilter() { return filter; }
+        public void setFilter(SearchFilter filter) { this.filter = filter; }
+
+        public SearchParameters getParameters() { return parameters; }
+        public void setParameters(SearchParameters parameters) { this.parameters = parameters; }
+
         @Override
         public String toString() {
             return "SimilarSearchRequest{" +
                     "query='" + query + '\'' +
                     ", limit=" + limit +
+                    ", filter=" + filter +
+                    ", projection=" + projection +
+                    ", parameters=" + parameters +
+                    '}';
+        }
+    }
+
+    public static class BatchSearchRequest {
+        private List<BatchSearchQuery> queries;
+        private Boolean dedupe = false;
+        private PayloadProjection projection;
+
+        public List<BatchSearchQuery> getQueries() { return queries; }
+        public void setQueries(List<BatchSearchQuery> queries) { this.queries = queries; }
+
+        public Boolean getDedupe() { return dedupe; }
+        public void setDedupe(Boolean dedupe) { this.dedupe = dedupe; }
+
+        public PayloadProjection getProjection() { return projection; }
+        public void setProjection(PayloadProjection projection) { this.projection = projection; }
+
+        @Override
+        public String toString() {
+            return "BatchSearchRequest{" +
+                    "queries=" + queries +
+                    ", dedupe=" + dedupe +
+                    ", projection=" + projection +
                     '}';
         }
     }
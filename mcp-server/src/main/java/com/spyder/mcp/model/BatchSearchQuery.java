@@ -0,0 +1,18 @@
+package com.spyder.mcp.model;
+
+import com.spyder.qdrant.model.SearchFilter;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One query of a batched semantic search, with its own limit and optional metadata filter.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchSearchQuery {
+    private String query;
+    private Integer limit;
+    private SearchFilter filter;
+}
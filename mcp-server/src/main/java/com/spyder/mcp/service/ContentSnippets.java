@@ -0,0 +1,130 @@
+package com.spyder.mcp.service;
+
+import com.spyder.qdrant.model.PayloadProjection;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shortens the {@code content} field of formatted search results according to a {@link PayloadProjection}.
+ * Results are changed in place.
+ */
+final class ContentSnippets {
+
+    private static final String CONTENT_FIELD = "content";
+    private static final String ELLIPSIS = "…";
+    private static final int MIN_TERM_LENGTH = 3;
+
+    private ContentSnippets() {
+    }
+
+    /**
+     * Apply the projection's content mode to every result. Snippets are centred on the window
+     * containing the most distinct query terms and fall back to truncation when nothing matches
+     * or there is no query.
+     */
+    @SuppressWarnings("unchecked")
+    static void apply(List<Map<String, Object>> results, PayloadProjection projection, String query) {
+        if (projection == null) {
+            return;
+        }
+        PayloadProjection.ContentMode mode = projection.getContent();
+        if (mode != PayloadProjection.ContentMode.TRUNCATE && mode != PayloadProjection.ContentMode.SNIPPET) {
+            return;
+        }
+        int length = projection.resolveContentLength();
+        List<String> terms = mode == PayloadProjection.ContentMode.SNIPPET ? terms(query) : List.of();
+        for (Map<String, Object> result : results) {
+            if (!(result.get("payload") instanceof Map<?, ?> payload)
+                    || !(payload.get(CONTENT_FIELD) instanceof String content)
+                    || content.length() <= length) {
+                continue;
+            }
+            ((Map<String, Object>) payload).put(CONTENT_FIELD, excerpt(content, length, bestWindowStart(content, length, terms)));
+        }
+    }
+
+    private static List<String> terms(String query) {
+        if (query == null) {
+            return List.of();
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        for (String term : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (term.length() >= MIN_TERM_LENGTH) {
+                terms.add(term);
+            }
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * Start of the window of {@code length} characters covering the most distinct terms, or -1 if no term occurs.
+     */
+    private static int bestWindowStart(String content, int length, List<String> terms) {
+        if (terms.isEmpty()) {
+            return -1;
+        }
+        String lower = content.toLowerCase(Locale.ROOT);
+        List<int[]> hits = new ArrayList<>();
+        for (int t = 0; t < terms.size(); t++) {
+            String term = terms.get(t);
+            for (int at = lower.indexOf(term); at >= 0; at = lower.indexOf(term, at + term.length())) {
+                hits.add(new int[]{at, t});
+            }
+        }
+        if (hits.isEmpty()) {
+            return -1;
+        }
+        hits.sort((a, b) -> Integer.compare(a[0], b[0]));
+
+        int[] counts = new int[terms.size()];
+        int distinct = 0;
+        int bestDistinct = 0;
+        int bestStart = hits.get(0)[0];
+        int bestEnd = bestStart;
+        int first = 0;
+        for (int last = 0; last < hits.size(); last++) {
+            int[] hit = hits.get(last);
+            int end = hit[0] + terms.get(hit[1]).length();
+            if (counts[hit[1]]++ == 0) {
+                distinct++;
+            }
+            while (end - hits.get(first)[0] > length) {
+                if (--counts[hits.get(first)[1]] == 0) {
+                    distinct--;
+                }
+                first++;
+            }
+            if (distinct > bestDistinct) {
+                bestDistinct = distinct;
+                bestStart = hits.get(first)[0];
+                bestEnd = end;
+            }
+        }
+        // Centre the matched span in the window
+        return Math.max(0, bestStart - (length - (bestEnd - bestStart)) / 2);
+    }
+
+    private static String excerpt(String content, int length, int windowStart) {
+        int start = Math.max(0, Math.min(windowStart, content.length() - length));
+        int end = Math.min(content.length(), start + length);
+        // Do not cut words in half
+        if (start > 0 && content.charAt(start - 1) != ' ') {
+            int space = content.indexOf(' ', start);
+            if (space >= 0 && space < end) {
+                start = space + 1;
+            }
+        }
+        if (end < content.length()) {
+            int space = content.lastIndexOf(' ', end);
+            if (space > start) {
+                end = space;
+            }
+        }
+        return (start > 0 ? ELLIPSIS : "") + content.substring(start, end).strip() + (end < content.length() ? ELLIPSIS : "");
+    }
+}
@@ -1,61 +1,223 @@
 package com.spyder.mcp.service;
 
-import com.spyder.qdrant.service.EmbeddingService;
-import com.spyder.qdrant.service.QdrantService;
-import io.qdrant.client.grpc.JsonWithInt;
+import com.spyder.mcp.config.SearchProperties;
+import com.spyder.mcp.model.BatchSearchQuery;
+import com.spyder.qdrant.model.PayloadProjection;
+import com.spyder.qdrant.model.SearchFilter;
+import com.spyder.qdrant.model.SearchParameters;
+import com.spyder.qdrant.model.VectorQuery;
+import com.spyder.qdrant.service.HedgedReads;
+import com.spyder.qdrant.service.VectorStore;
+import io.grpc.Context;
+import io.grpc.Deadline;
 import io.qdrant.client.grpc.Points;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class QdrantMcpSearchService {
 
-    private final QdrantService qdrantService;
-    private final EmbeddingService embeddingService;
+    private final VectorStore vectorStore;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final SearchProperties searchProperties;
+    private final HedgedReads hedgedReads;
+    private final ScheduledThreadPoolExecutor deadlineScheduler = deadlineScheduler();
 
     @Tool(
             name = "search_similar_chunks",
-            description = "Semantic search qdrant vector database"
+            description = "Semantic search qdrant vector database, optionally restricted by metadata "
+                    + "(chapter, heading, subheading, page number or page range, source document)"
     )
     public List<Map<String, Object>> searchSimilarChunks(
             @ToolParam(description = "The query string to search in the vector db") String query,
-            @ToolParam(description = "Limit on result count", required = false) Integer limit
+            @ToolParam(description = "Limit on result count", required = false) Integer limit,
+            @ToolParam(description = "Chapter name to filter by", required = false) String chapter,
+            @ToolParam(description = "Heading text to filter by", required = false) String heading,
+            @ToolParam(description = "Subheading text to filter by", required = false) String subheading,
+            @ToolParam(description = "Page number to filter by", required = false) Integer pageNumber,
+            @ToolParam(description = "First page of a page range, inclusive", required = false) Integer pageFrom,
+            @ToolParam(description = "Last page of a page range, inclusive", required = false) Integer pageTo,
+            @ToolParam(description = "Source document name to filter by", required = false) String source,
+            @ToolParam(description = "Payload fields to return (include/exclude lists) and content mode: "
+                    + "full, truncate, snippet (around the best match) or none; content_length sets the excerpt size", required = false) PayloadProjection projection,
+            @ToolParam(description = "HNSW candidate list size; higher finds more of the true nearest chunks but is slower", required = false) Integer hnswEf,
+            @ToolParam(description = "Score every chunk instead of using the index; exact but slow on large collections", required = false) Boolean exact,
+            @ToolParam(description = "Minimum similarity score between -1 and 1; weaker matches are dropped", required = false) Float scoreThreshold
     ) {
-        try {
-            // Set default limit to 3 if not provided
-            int searchLimit = Optional.ofNullable(limit).orElse(3);
-            
-            log.info("Searching for similar chunks with query: '{}', limit: {}", query, searchLimit);
-            
-            // Generate embedding for the query
-            float[] queryEmbedding = embeddingService.generateQueryEmbedding(query);
-            
-            // Search for similar vectors in Qdrant
-            List<Points.ScoredPoint> results = qdrantService.searchSimilarVectors(queryEmbedding, searchLimit);
-            
-            // Convert results to the expected format
-            List<Map<String, Object>> formattedResults = new ArrayList<>();
-            for (Points.ScoredPoint point : results) {
-                formattedResults.add(convertPointToMap(point));
+        SearchFilter filter = new SearchFilter(chapter, heading, subheading, pageNumber, pageFrom, pageTo, source);
+        SearchParameters parameters = new SearchParameters(hnswEf, exact, scoreThreshold);
+        // Tool callbacks are synchronous; the ASYNC MCP server runs them on a bounded-elastic thread
+        return searchSimilarChunksAsync(query, limit, filter, projection, parameters).block();
+    }
+
+    public Mono<List<Map<String, Object>>> searchSimilarChunksAsync(String query, Integer limit) {
+        return searchSimilarChunksAsync(query, limit, null, null);
+    }
+
+    /**
+     * Semantic search restricted to points matching the filter. The filter is pushed down into
+     * the Qdrant search, so up to {@code limit} matching chunks come back in one round trip.
+     * The projection selects the payload fields Qdrant sends back and how content is shortened.
+     */
+    public Mono<List<Map<String, Object>>> searchSimilarChunksAsync(String query, Integer limit, SearchFilter filter,
+                                                                    PayloadProjection projection) {
+        return searchSimilarChunksAsync(query, limit, filter, projection, null);
+    }
+
+    /**
+     * Filtered search with per-request search parameters, which trade recall for latency;
+     * null parameters use the configured {@code qdrant.search} settings.
+     */
+    public Mono<List<Map<String, Object>>> searchSimilarChunksAsync(String query, Integer limit, SearchFilter filter,
+                                                                    PayloadProjection projection, SearchParameters parameters) {
+        if (filter != null && filter.getPageFrom() != null && filter.getPageTo() != null
+                && filter.getPageFrom() > filter.getPageTo()) {
+            return Mono.error(new IllegalArgumentException("pageFrom must not be greater than pageTo"));
+        }
+        if (parameters != null) {
+            try {
+                parameters.validate();
+            } catch (IllegalArgumentException e) {
+                return Mono.error(e);
+            }
+        }
+
+        // Set default limit to 3 if not provided
+        int searchLimit = Optional.ofNullable(limit).orElse(3);
+        
+        log.info("Searching for similar chunks with query: '{}', limit: {}, filter: {}, parameters: {}", query, searchLimit, filter, parameters);
+        Deadline deadline = requestDeadline();
+        
+        // Generate embedding for the query, repeated queries are served from the cache
+        return Mono.fromFuture(() -> queryEmbeddingCache.getEmbeddingAsync(query))
+                // Search for similar vectors in Qdrant
+                .flatMap(queryEmbedding -> Mono.fromFuture(() -> withinDeadline(deadline,
+                        () -> vectorStore.searchSimilarVectorsAsync(queryEmbedding, searchLimit, filter, projection, parameters))))
+                .map(results -> {
+                    // Convert results to the expected format
+                    List<Map<String, Object>> formattedResults = new ArrayList<>();
+                    for (Points.ScoredPoint point : results) {
+                        formattedResults.add(convertPointToMap(point));
+                    }
+                    
+                    // Sort by score (highest first) for relevance-based ordering
+                    formattedResults.sort(sortByScoreComparator());
+                    ContentSnippets.apply(formattedResults, projection, query);
+
+                    log.info("Found {} similar chunks for query: '{}'", formattedResults.size(), query);
+                    log.debug("Query embedding cache: {}", queryEmbeddingCache.getStats());
+                    logHedgingStats();
+                    return formattedResults;
+                })
+                .timeout(searchProperties.getDeadline())
+                // Parameters the collection cannot honour are reported like invalid ones, not as an empty result
+                .onErrorResume(e -> !(e instanceof IllegalArgumentException), e -> {
+                    log.error("Failed to search for similar chunks with query: '{}', error: {}", query, e.getMessage(), e);
+                    return Mono.just(new ArrayList<>());
+                });
+    }
+
+    @Tool(
+            name = "search_similar_chunks_batch",
+            description = "Run several semantic searches against the qdrant vector database in one call. "
+                    + "Each query has its own limit and optional filter (chapter, heading, subheading, page_number, page_from, page_to, source)"
+    )
+    public List<Map<String, Object>> searchSimilarChunksBatch(
+            @ToolParam(description = "The queries to run, each with a query string, optional limit and optional filter") List<BatchSearchQuery> queries,
+            @ToolParam(description = "Return hits already returned for an earlier query without their payload", required = false) Boolean dedupe,
+            @ToolParam(description = "Payload fields to return (include/exclude lists) and content mode: "
+                    + "full, truncate, snippet (around the best match) or none; content_length sets the excerpt size", required = false) PayloadProjection projection
+    ) {
+        return searchSimilarChunksBatchAsync(queries, dedupe, projection).block();
+    }
+
+    /**
+     * Embed all queries in one batched inference and run them as a single Qdrant batch search.
+     * Returns one {@code {query, results}} entry per query, in request order.
+     */
+    public Mono<List<Map<String, Object>>> searchSimilarChunksBatchAsync(List<BatchSearchQuery> queries, Boolean dedupe,
+                                                                         PayloadProjection projection) {
+        if (queries == null || queries.isEmpty()) {
+            return Mono.error(new IllegalArgumentException("At least one query must be provided"));
+        }
+        for (BatchSearchQuery query : queries) {
+            if (query == null || query.getQuery() == null || query.getQuery().trim().isEmpty()) {
+                return Mono.error(new IllegalArgumentException("Every query must have a non-empty query string"));
+            }
+            SearchFilter filter = query.getFilter();
+            if (filter != null && filter.getPageFrom() != null && filter.getPageTo() != null
+                    && filter.getPageFrom() > filter.getPageTo()) {
+                return Mono.error(new IllegalArgumentException("pageFrom must not be greater than pageTo"));
             }
-            
-            // Sort by score (highest first) for relevance-based ordering
-            formattedResults.sort(sortByScoreComparator());
-
-            log.info("Found {} similar chunks for query: '{}'", formattedResults.size(), query);
-            return formattedResults;
-            
-        } catch (Exception e) {
-            log.error("Failed to search for similar chunks with query: '{}', error: {}", query, e.getMessage(), e);
-            return new ArrayList<>();
         }
+        boolean deduplicate = Boolean.TRUE.equals(dedupe);
+
+        log.info("Batch searching {} queries, dedupe: {}", queries.size(), deduplicate);
+
+        List<String> texts = queries.stream().map(BatchSearchQuery::getQuery).toList();
+        Deadline deadline = requestDeadline();
+        return Mono.fromFuture(() -> {
+                    List<CompletableFuture<float[]>> embeddings = queryEmbeddingCache.getEmbeddingsAsync(texts);
+                    return CompletableFuture.allOf(embeddings.toArray(CompletableFuture[]::new))
+                            .thenCompose(ignored -> {
+                                List<VectorQuery> vectorQueries = new ArrayList<>(queries.size());
+                                for (int i = 0; i < queries.size(); i++) {
+                                    BatchSearchQuery query = queries.get(i);
+                                    vectorQueries.add(new VectorQuery(embeddings.get(i).join(),
+                                            Optional.ofNullable(query.getLimit()).orElse(3), query.getFilter()));
+                                }
+                                return withinDeadline(deadline,
+                                        () -> vectorStore.searchSimilarVectorsBatchAsync(vectorQueries, projection));
+                            });
+                })
+                .map(batchResults -> {
+                    Map<String, Integer> firstSeenIn = new HashMap<>();
+                    List<Map<String, Object>> response = new ArrayList<>(queries.size());
+                    for (int i = 0; i < queries.size(); i++) {
+                        List<Map<String, Object>> formattedResults = new ArrayList<>();
+                        for (Points.ScoredPoint point : batchResults.get(i)) {
+                            Integer earlier = deduplicate ? firstSeenIn.putIfAbsent(point.getId().getUuid(), i) : null;
+                            if (earlier != null && earlier != i) {
+                                // Keep the hit so scores stay comparable, but point at the payload returned earlier
+                                Map<String, Object> duplicate = new HashMap<>();
+                                duplicate.put("id", point.getId().getUuid());
+                                duplicate.put("score", point.getScore());
+                                duplicate.put("duplicate_of", earlier);
+                                formattedResults.add(duplicate);
+                            } else {
+                                formattedResults.add(convertPointToMap(point));
+                            }
+                        }
+                        formattedResults.sort(sortByScoreComparator());
+                        ContentSnippets.apply(formattedResults, projection, queries.get(i).getQuery());
+
+                        Map<String, Object> entry = new LinkedHashMap<>();
+                        entry.put("query", queries.get(i).getQuery());
+                        entry.put("results", formattedResults);
+                        response.add(entry);
+                    }
+                    log.info("Batch search returned results for {} queries", response.size());
+                    logHedgingStats();
+                    return response;
+                })
+                .timeout(searchProperties.getDeadline())
+                .onErrorResume(e -> {
+                    log.error("Failed to batch search {} queries, error: {}", queries.size(), e.getMessage(), e);
+                    return Mono.just(new ArrayList<>());
+                });
     }
 
     private Comparator<Map<String, Object>> sortByScoreComparator() {
@@ -73,73 +235,124 @@ public class QdrantMcpSearchService {
             @ToolParam(description = "Heading text to filter by", required = false) String heading,
             @ToolParam(description = "Subheading text to filter by", required = false) String subheading,
             @ToolParam(description = "Page number to filter by", required = false) Integer pageNumber,
-            @ToolParam(description = "Limit on result count", required = false) Integer limit
+            @ToolParam(description = "Limit on result count", required = false) Integer limit,
+            @ToolParam(description = "Payload fields to return (include/exclude lists) and content mode: "
+                    + "full, truncate, snippet (same as truncate here) or none; content_length sets the excerpt size", required = false) PayloadProjection projection
     ) {
+        return searchWithFiltersAsync(chapter, heading, subheading, pageNumber, limit, projection).block();
+    }
+
+    public Mono<List<Map<String, Object>>> searchWithFiltersAsync(String chapter, String heading, String subheading,
+                                                                  Integer pageNumber, Integer limit) {
+        return searchWithFiltersAsync(chapter, heading, subheading, pageNumber, limit, null);
+    }
+
+    public Mono<List<Map<String, Object>>> searchWithFiltersAsync(String chapter, String heading, String subheading,
+                                                                  Integer pageNumber, Integer limit, PayloadProjection projection) {
+        // Validate that at least one filter is provided
+        if ((chapter == null || chapter.trim().isEmpty()) && 
+            (heading == null || heading.trim().isEmpty()) && 
+            (subheading == null || subheading.trim().isEmpty()) && 
+            pageNumber == null) {
+            log.error("Invalid filter parameters: no filter provided");
+            return Mono.error(new IllegalArgumentException("At least one filter parameter (chapter, heading, subheading, pageNumber) must be provided"));
+        }
+        
+        // Set default limit to 50 if not provided (higher than semantic search since we're filtering)
+        int searchLimit = Optional.ofNullable(limit).orElse(50);
+        
+        log.info("Searching with filters - chapter: '{}', heading: '{}', subheading: '{}', page: {}, limit: {}", 
+                chapter, heading, subheading, pageNumber, searchLimit);
+        
+        // Search with filters in the vector store
+        Deadline deadline = requestDeadline();
+        return Mono.fromFuture(() -> withinDeadline(deadline,
+                        () -> vectorStore.searchWithFiltersAsync(chapter, heading, subheading, pageNumber, searchLimit, projection)))
+                .map(results -> {
+                    // Convert results to the expected format
+                    List<Map<String, Object>> formattedResults = new ArrayList<>();
+                    for (Points.RetrievedPoint point : results) {
+                        formattedResults.add(convertRetrievedPointToMap(point));
+                    }
+                    
+                    // Sort by chunk index for better readability (especially important for filtered searches)
+                    sortByChunkIndex(formattedResults);
+                    // No query to centre a snippet on, so this truncates from the start
+                    ContentSnippets.apply(formattedResults, projection, null);
+                    
+                    log.info("Found {} filtered chunks", formattedResults.size());
+                    logHedgingStats();
+                    return formattedResults;
+                })
+                .timeout(searchProperties.getDeadline())
+                .onErrorResume(e -> {
+                    log.error("Failed to search with filters - chapter: '{}', heading: '{}', subheading: '{}', page: {}, error: {}", 
+                            chapter, heading, subheading, pageNumber, e.getMessage(), e);
+                    return Mono.just(new ArrayList<>());
+                });
+    }
+
+
+    /**
+     * Timers for request deadlines. Most requests finish well before theirs, so cancelled timers are
+     * removed right away instead of waiting in the queue until they would have fired.
+     */
+    private static ScheduledThreadPoolExecutor deadlineScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "search-deadlines");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    private Deadline requestDeadline() {
+        return Deadline.after(searchProperties.getDeadline().toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Start a Qdrant call with the request deadline on its gRPC context. The RPC, and any hedge of it,
+     * then gives up when the request would have timed out anyway. The context is cancelled as soon as
+     * the call completes or is cancelled, which also drops its deadline timer from the scheduler.
+     */
+    private <T> CompletableFuture<T> withinDeadline(Deadline deadline, Supplier<CompletableFuture<T>> call) {
+        Context.CancellableContext context = Context.current().withDeadline(deadline, deadlineScheduler);
+        Context previous = context.attach();
         try {
-            // Validate that at least one filter is provided
-            if ((chapter == null || chapter.trim().isEmpty()) && 
-                (heading == null || heading.trim().isEmpty()) && 
-                (subheading == null || subheading.trim().isEmpty()) && 
-                pageNumber == null) {
-                throw new IllegalArgumentException("At least one filter parameter (chapter, heading, subheading, pageNumber) must be provided");
-            }
-            
-            // Set default limit to 50 if not provided (higher than semantic search since we're filtering)
-            int searchLimit = Optional.ofNullable(limit).orElse(50);
-            
-            log.info("Searching with filters - chapter: '{}', heading: '{}', subheading: '{}', page: {}, limit: {}", 
-                    chapter, heading, subheading, pageNumber, searchLimit);
-            
-            // Search with filters using QdrantService
-            List<Points.RetrievedPoint> results = qdrantService.searchWithFilters(chapter, heading, subheading, pageNumber, searchLimit);
-            
-            // Convert results to the expected format
-            List<Map<String, Object>> formattedResults = new ArrayList<>();
-            for (Points.RetrievedPoint point : results) {
-                formattedResults.add(convertRetrievedPointToMap(point));
-            }
-            
-            // Sort by chunk index for better readability (especially important for filtered searches)
-            sortByChunkIndex(formattedResults);
-            
-            log.info("Found {} filtered chunks", formattedResults.size());
-            return formattedResults;
-            
-        } catch (IllegalArgumentException e) {
-            log.error("Invalid filter parameters: {}", e.getMessage());
+            CompletableFuture<T> future = call.get();
+            future.whenComplete((result, error) -> context.cancel(null));
+            return future;
+        } catch (RuntimeException | Error e) {
+            context.cancel(null);
             throw e;
-        } catch (Exception e) {
-            log.error("Failed to search with filters - chapter: '{}', heading: '{}', subheading: '{}', page: {}, error: {}", 
-                    chapter, heading, subheading, pageNumber, e.getMessage(), e);
-            return new ArrayList<>();
+        } finally {
+            context.detach(previous);
+        }
+    }
+
+    private void logHedgingStats() {
+        if (log.isDebugEnabled()) {
+            HedgedReads.Stats stats = hedgedReads.getStats();
+            log.debug("Hedged reads: rate {}, {}", String.format("%.3f", stats.hedgeRate()), stats);
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        deadlineScheduler.shutdownNow();
+    }
 
     private Map<String, Object> convertPointToMap(Points.ScoredPoint point) {
-        return qdrantService.convertPointToMap(point);
+        return vectorStore.convertPointToMap(point);
     }
     
     private Map<String, Object> convertRetrievedPointToMap(Points.RetrievedPoint point) {
-        Map<String, Object> result = new HashMap<>();
+        Map<String, Object> result = HashMap.newHashMap(2);
         
         // RetrievedPoint doesn't have a score since it's from filtered search, not similarity search
         result.put("id", point.getId().getUuid());
-        
-        Map<String, Object> payload = new HashMap<>();
-        for (Map.Entry<String, JsonWithInt.Value> entry : point.getPayloadMap().entrySet()) {
-            JsonWithInt.Value value = entry.getValue();
-            if (value.hasStringValue()) {
-                payload.put(entry.getKey(), value.getStringValue());
-            } else if (value.hasIntegerValue()) {
-                payload.put(entry.getKey(), value.getIntegerValue());
-            } else if (value.hasDoubleValue()) {
-                payload.put(entry.getKey(), value.getDoubleValue());
-            } else if (value.hasBoolValue()) {
-                payload.put(entry.getKey(), value.getBoolValue());
-            }
-        }
-        result.put("payload", payload);
+        result.put("payload", VectorStore.convertPayload(point.getPayloadMap()));
         
         return result;
     }
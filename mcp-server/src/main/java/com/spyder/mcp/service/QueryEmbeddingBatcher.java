@@ -0,0 +1,229 @@
+package com.spyder.mcp.service;
+
+import com.spyder.mcp.config.QueryEmbeddingProperties;
+import com.spyder.qdrant.service.EmbeddingService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces concurrent query embeddings into batched inference calls.
+ * <p>
+ * A query that arrives while the server is quiet is dispatched right away, together with
+ * anything already queued, so a lone request never waits. Under concurrent load (a query in the batch
+ * arrived while other queries were queued or being embedded, or the previous batch carried more than
+ * one query) a batch is held open for up to
+ * {@code max-wait} or until {@code max-batch-size} is reached, and then embedded in one call.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QueryEmbeddingBatcher {
+
+    private final EmbeddingService embeddingService;
+    private final QueryEmbeddingProperties properties;
+
+    private final BlockingQueue<PendingQuery> queue = new LinkedBlockingQueue<>();
+    private final Object submitLock = new Object();
+    /**
+     * Queries submitted to the batch queue and not completed yet, across all callers.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int lastBatchSize;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+    private ExecutorService unbatchedExecutor;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder totalQueueNanos = new LongAdder();
+    private final LongAccumulator maxQueueNanos = new LongAccumulator(Math::max, 0);
+
+    @PostConstruct
+    public void start() {
+        QueryEmbeddingProperties.Batching config = properties.getBatching();
+        if (!config.isEnabled()) {
+            // Inference still stays off the caller's thread, which may be a Netty event loop
+            AtomicInteger threadCount = new AtomicInteger();
+            unbatchedExecutor = Executors.newFixedThreadPool(Math.max(1, config.getWorkers()), runnable -> {
+                Thread thread = new Thread(runnable, "query-embedding-" + threadCount.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+            return;
+        }
+        running = true;
+        for (int i = 0; i < Math.max(1, config.getWorkers()); i++) {
+            Thread worker = new Thread(this::dispatchLoop, "query-embedding-batcher-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        log.info("Query embedding batching enabled: max batch size {}, max wait {}, {} workers",
+                config.getMaxBatchSize(), config.getMaxWait(), workers.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        if (unbatchedExecutor != null) {
+            unbatchedExecutor.shutdownNow();
+        }
+        PendingQuery pending;
+        while ((pending = queue.poll()) != null) {
+            inFlight.decrementAndGet();
+            pending.future().completeExceptionally(new IllegalStateException("Query embedding batcher stopped"));
+        }
+    }
+
+    /**
+     * Queue a query for the next batch. Completes with a zero vector if inference fails,
+     * the same as {@link EmbeddingService#generateQueryEmbedding(String)}. Never runs inference
+     * on the calling thread.
+     */
+    public CompletableFuture<float[]> submit(String query) {
+        if (!running) {
+            if (unbatchedExecutor == null || unbatchedExecutor.isShutdown()) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Query embedding batcher stopped"));
+            }
+            return CompletableFuture.supplyAsync(() -> embeddingService.generateQueryEmbedding(query), unbatchedExecutor);
+        }
+        PendingQuery pending = new PendingQuery(query, System.nanoTime(), inFlight.getAndIncrement(), new CompletableFuture<>());
+        queue.add(pending);
+        return pending.future();
+    }
+
+    /**
+     * Queue several queries so they are dispatched together, in as few batches as {@code max-batch-size} allows.
+     */
+    public List<CompletableFuture<float[]>> submitAll(List<String> queries) {
+        if (!running) {
+            if (unbatchedExecutor == null || unbatchedExecutor.isShutdown()) {
+                return queries.stream()
+                        .map(query -> CompletableFuture.<float[]>failedFuture(new IllegalStateException("Query embedding batcher stopped")))
+                        .toList();
+            }
+            CompletableFuture<List<float[]>> embeddings = CompletableFuture.supplyAsync(
+                    () -> embeddingService.generateQueryEmbeddings(queries), unbatchedExecutor);
+            List<CompletableFuture<float[]>> futures = new ArrayList<>(queries.size());
+            for (int i = 0; i < queries.size(); i++) {
+                int index = i;
+                futures.add(embeddings.thenApply(results -> results.get(index)));
+            }
+            return futures;
+        }
+        long now = System.nanoTime();
+        // The queries of one call do not count as load for each other
+        int othersInFlight = inFlight.getAndAdd(queries.size());
+        List<PendingQuery> pending = queries.stream()
+                .map(query -> new PendingQuery(query, now, othersInFlight, new CompletableFuture<>()))
+                .toList();
+        // Held while adding so a worker that wakes up on the first query drains the rest with it
+        synchronized (submitLock) {
+            queue.addAll(pending);
+        }
+        return pending.stream().map(PendingQuery::future).toList();
+    }
+
+    public float[] embed(String query) {
+        return submit(query).join();
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                List<PendingQuery> batch = collectBatch();
+                runBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Query embedding batcher failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private List<PendingQuery> collectBatch() throws InterruptedException {
+        QueryEmbeddingProperties.Batching config = properties.getBatching();
+        int maxBatchSize = Math.max(1, config.getMaxBatchSize());
+
+        List<PendingQuery> batch = new ArrayList<>(maxBatchSize);
+        batch.add(queue.take());
+        synchronized (submitLock) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+        }
+
+        // Only hold the batch open under concurrent load
+        if (lastBatchSize > 1 || batch.stream().anyMatch(pending -> pending.othersInFlight() > 0)) {
+            long deadline = batch.get(0).enqueuedAt() + config.getMaxWait().toNanos();
+            while (batch.size() < maxBatchSize) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                PendingQuery next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+                queue.drainTo(batch, maxBatchSize - batch.size());
+            }
+        }
+        return batch;
+    }
+
+    private void runBatch(List<PendingQuery> batch) {
+        long dispatchedAt = System.nanoTime();
+        for (PendingQuery pending : batch) {
+            long queued = dispatchedAt - pending.enqueuedAt();
+            totalQueueNanos.add(queued);
+            maxQueueNanos.accumulate(queued);
+        }
+        batches.increment();
+        queries.add(batch.size());
+        lastBatchSize = batch.size();
+
+        try {
+            List<float[]> embeddings = embeddingService.generateQueryEmbeddings(
+                    batch.stream().map(PendingQuery::query).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future().complete(embeddings.get(i));
+            }
+        } catch (Exception e) {
+            batch.forEach(pending -> pending.future().completeExceptionally(e));
+        } finally {
+            inFlight.addAndGet(-batch.size());
+        }
+        log.debug("Embedded batch of {} queries, {}", batch.size(), getStats());
+    }
+
+    public Stats getStats() {
+        long batchCount = batches.sum();
+        long queryCount = queries.sum();
+        int maxBatchSize = Math.max(1, properties.getBatching().getMaxBatchSize());
+        double fillRatio = batchCount == 0 ? 0.0 : (double) queryCount / (batchCount * maxBatchSize);
+        double avgQueueMillis = queryCount == 0 ? 0.0 : totalQueueNanos.sum() / 1e6 / queryCount;
+        return new Stats(batchCount, queryCount, fillRatio, avgQueueMillis, maxQueueNanos.get() / 1e6);
+    }
+
+    public record Stats(long batches, long queries, double fillRatio, double avgQueueMillis, double maxQueueMillis) {
+    }
+
+    private record PendingQuery(String query, long enqueuedAt, int othersInFlight, CompletableFuture<float[]> future) {
+    }
+}
@@ -0,0 +1,177 @@
+package com.spyder.mcp.service;
+
+import com.spyder.mcp.config.QueryEmbeddingProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Size- and TTL-bounded LRU cache of query embeddings keyed by normalized query text.
+ * Concurrent misses for the same key share one inference call.
+ * Returned arrays are shared with the cache and must not be modified by callers.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QueryEmbeddingCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final QueryEmbeddingBatcher queryEmbeddingBatcher;
+    private final QueryEmbeddingProperties properties;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<float[]>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public float[] getEmbedding(String query) {
+        return getEmbeddingAsync(query).join();
+    }
+
+    /**
+     * Cached embedding for the query, or a future completed by the batcher on a miss.
+     * Never blocks the calling thread.
+     */
+    public CompletableFuture<float[]> getEmbeddingAsync(String query) {
+        return getEmbeddingsAsync(List.of(query)).get(0);
+    }
+
+    /**
+     * Embeddings for several queries. Misses are submitted to the batcher together so they share
+     * one inference call; queries equal after normalization are embedded once.
+     */
+    public List<CompletableFuture<float[]>> getEmbeddingsAsync(List<String> queries) {
+        if (!properties.getCache().isEnabled()) {
+            return queryEmbeddingBatcher.submitAll(queries);
+        }
+
+        List<CompletableFuture<float[]>> results = new ArrayList<>(queries.size());
+        Map<String, CompletableFuture<float[]>> owned = new LinkedHashMap<>();
+        List<String> toEmbed = new ArrayList<>();
+        for (String query : queries) {
+            String key = normalize(query);
+            float[] cached = lookup(key);
+            if (cached != null) {
+                hits.increment();
+                results.add(CompletableFuture.completedFuture(cached));
+                continue;
+            }
+            misses.increment();
+
+            CompletableFuture<float[]> pending = owned.get(key);
+            if (pending == null) {
+                CompletableFuture<float[]> candidate = new CompletableFuture<>();
+                CompletableFuture<float[]> existing = inFlight.putIfAbsent(key, candidate);
+                pending = existing != null ? existing : candidate;
+                if (existing == null) {
+                    owned.put(key, candidate);
+                    toEmbed.add(query);
+                }
+            }
+            results.add(pending);
+        }
+
+        if (!toEmbed.isEmpty()) {
+            List<CompletableFuture<float[]>> embedded = queryEmbeddingBatcher.submitAll(toEmbed);
+            int i = 0;
+            for (Map.Entry<String, CompletableFuture<float[]>> entry : owned.entrySet()) {
+                String key = entry.getKey();
+                CompletableFuture<float[]> pending = entry.getValue();
+                embedded.get(i++).whenComplete((embedding, error) -> {
+                    // The embedding service returns a zero vector on failure, which must not be cached
+                    if (error == null && !isZero(embedding)) {
+                        store(key, embedding);
+                    }
+                    inFlight.remove(key, pending);
+                    if (error != null) {
+                        pending.completeExceptionally(error);
+                    } else {
+                        pending.complete(embedding);
+                    }
+                });
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Normalize a query into a cache key: trimmed, whitespace collapsed, case handled per policy.
+     */
+    public String normalize(String query) {
+        String key = WHITESPACE.matcher(query.trim()).replaceAll(" ");
+        if (properties.getCache().getCasePolicy() == QueryEmbeddingProperties.CasePolicy.LOWERCASE) {
+            key = key.toLowerCase(Locale.ROOT);
+        }
+        return key;
+    }
+
+    private synchronized float[] lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.createdAt() > properties.getCache().getTtl().toNanos()) {
+            entries.remove(key);
+            expirations.increment();
+            return null;
+        }
+        return entry.embedding();
+    }
+
+    private synchronized void store(String key, float[] embedding) {
+        entries.put(key, new Entry(embedding, System.nanoTime()));
+        int maxEntries = Math.max(1, properties.getCache().getMaxEntries());
+        var iterator = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private static boolean isZero(float[] embedding) {
+        for (float value : embedding) {
+            if (value != 0f) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), size());
+    }
+
+    public record Stats(long hits, long misses, long evictions, long expirations, int size) {
+
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+    }
+
+    private record Entry(float[] embedding, long createdAt) {
+    }
+}
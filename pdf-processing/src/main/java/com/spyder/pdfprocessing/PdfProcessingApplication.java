@@ -1,11 +1,16 @@
 package com.spyder.pdfprocessing;
 
+import com.spyder.pdfprocessing.service.AllocationBenchmarkService;
 import com.spyder.pdfprocessing.service.DocumentService;
+import com.spyder.pdfprocessing.service.FilterBenchmarkService;
+import com.spyder.pdfprocessing.service.ModelBenchmarkService;
 import com.spyder.pdfprocessing.service.PdfProcessingService;
+import com.spyder.pdfprocessing.service.RecallEvaluationService;
+import com.spyder.pdfprocessing.service.ReindexService;
+import com.spyder.pdfprocessing.service.StoreBenchmarkService;
 import com.spyder.qdrant.config.EmbeddingProperties;
 import com.spyder.qdrant.model.DocumentChunk;
-import com.spyder.qdrant.service.EmbeddingService;
-import com.spyder.qdrant.service.QdrantService;
+import com.spyder.qdrant.service.VectorStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
@@ -13,6 +18,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
+import java.nio.file.Path;
 import java.util.List;
 
 @Slf4j
@@ -23,11 +29,16 @@ import java.util.List;
 @RequiredArgsConstructor
 public class PdfProcessingApplication implements CommandLineRunner {
 
-    private final QdrantService qdrantService;
+    private final VectorStore vectorStore;
     private final PdfProcessingService pdfProcessingService;
     private final EmbeddingProperties embeddingProperties;
-    private final EmbeddingService embeddingService;
     private final DocumentService documentService;
+    private final ModelBenchmarkService modelBenchmarkService;
+    private final FilterBenchmarkService filterBenchmarkService;
+    private final ReindexService reindexService;
+    private final StoreBenchmarkService storeBenchmarkService;
+    private final RecallEvaluationService recallEvaluationService;
+    private final AllocationBenchmarkService allocationBenchmarkService;
 
     public static void main(String[] args) {
         SpringApplication.run(PdfProcessingApplication.class, args);
@@ -36,24 +47,78 @@ public class PdfProcessingApplication implements CommandLineRunner {
     @Override
     public void run(String... args) {
         if (args.length < 1 || args.length > 2) {
-            log.error("Usage: java -jar starforge-mcp.jar <path-to-pdf> [--skip-qdrant]");
+            printUsage();
             System.exit(1);
         }
         
-        String pdfPath = args[0];
-        boolean skipQdrant = args.length > 1 && "--skip-qdrant".equals(args[1]);
-
         try {
-            List<DocumentChunk> documentChunks = pdfProcessingService.processPdf(pdfPath);
-            if(!skipQdrant) {
-                List<float[]> embeddings = embeddingService.generateEmbeddings(documentChunks);
-                qdrantService.createCollectionIfNotExists(embeddingProperties);
-                documentService.upsertDocumentChunks(documentChunks,  embeddings);
+            switch (args[0]) {
+                case "--benchmark-model" -> modelBenchmarkService.run(args.length > 1 ? Path.of(args[1]) : null);
+                case "--benchmark-allocation" -> allocationBenchmarkService.run(args.length > 1 ? Path.of(args[1]) : null);
+                case "--benchmark-filters" -> filterBenchmarkService.run(args.length > 1 ? Integer.parseInt(args[1]) : 100_000);
+                case "--benchmark-store" -> storeBenchmarkService.run(args.length > 1 ? Integer.parseInt(args[1]) : 5_000);
+                case "--evaluate-recall" -> recallEvaluationService.run(Path.of(requireArgument(args)));
+                case "ingest" -> ingest(requireArgument(args), false);
+                case "replace" -> ingest(requireArgument(args), true);
+                case "reindex" -> reindexService.run(Path.of(requireArgument(args)));
+                case "remove" -> {
+                    String source = requireArgument(args);
+                    vectorStore.createCollectionIfNotExists(embeddingProperties);
+                    documentService.removeSource(source);
+                }
+                default -> {
+                    String pdfPath = args[0];
+                    boolean skipQdrant = args.length > 1 && "--skip-qdrant".equals(args[1]);
+                    if (skipQdrant) {
+                        pdfProcessingService.processPdf(pdfPath);
+                    } else {
+                        ingest(pdfPath, false);
+                    }
+                }
             }
             log.info("Application completed successfully");
+        } catch (IllegalArgumentException e) {
+            log.error(e.getMessage());
+            printUsage();
+            System.exit(1);
         } catch (Exception e) {
             log.error("Error processing PDF: {}", e.getMessage(), e);
             System.exit(1);
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Chunk a PDF and write it to the collection as its own source, named after the file.
+     * A replace re-embeds every chunk; a normal ingest only touches chunks that changed.
+     */
+    private void ingest(String pdfPath, boolean replace) throws Exception {
+        String source = Path.of(pdfPath).getFileName().toString();
+        List<DocumentChunk> documentChunks = pdfProcessingService.processPdf(pdfPath);
+        vectorStore.createCollectionIfNotExists(embeddingProperties);
+        if (replace) {
+            documentService.replaceDocumentChunks(source, documentChunks);
+        } else {
+            documentService.syncDocumentChunks(source, documentChunks);
+        }
+    }
+    
+    private static String requireArgument(String[] args) {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Missing argument for '" + args[0] + "'");
+        }
+        return args[1];
+    }
+    
+    private static void printUsage() {
+        log.error("Usage: java -jar starforge-mcp.jar <path-to-pdf> [--skip-qdrant]");
+        log.error("       java -jar starforge-mcp.jar ingest <path-to-pdf>   (update only changed chunks of this source)");
+        log.error("       java -jar starforge-mcp.jar replace <path-to-pdf>  (re-embed and rewrite this source)");
+        log.error("       java -jar starforge-mcp.jar remove <source-name>   (delete one source, e.g. book.pdf)");
+        log.error("       java -jar starforge-mcp.jar reindex <pdf-or-directory>  (rebuild into a new collection version and swap it in)");
+        log.error("       java -jar starforge-mcp.jar --benchmark-model [queries-file]");
+        log.error("       java -jar starforge-mcp.jar --benchmark-allocation [texts-file]  (heap bytes per embedding batch, direct buffers vs nested arrays)");
+        log.error("       java -jar starforge-mcp.jar --benchmark-filters [point-count]");
+        log.error("       java -jar starforge-mcp.jar --benchmark-store [point-count]   (embedded HNSW store vs Qdrant)");
+        log.error("       java -jar starforge-mcp.jar --evaluate-recall <query-log>  (recall@10 and latency per search setting, against exact search)");
+    }
+}
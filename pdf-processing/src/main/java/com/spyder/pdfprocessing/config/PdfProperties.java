@@ -13,8 +13,27 @@ public class PdfProperties {
 
     @Data
     public static class Chunking {
+        private Mode mode = Mode.CHARACTERS;
         private int size;
         private int overlap;
+
+        /**
+         * Token budget per chunk in {@code TOKENS} mode, including the model's special tokens.
+         * 0 uses the embedding model's max length.
+         */
+        private int maxTokens = 0;
+        private int overlapTokens = 32;
+    }
+
+    public enum Mode {
+        /**
+         * Cut on {@code size} characters with {@code overlap} characters of overlap.
+         */
+        CHARACTERS,
+        /**
+         * Cut on the embedding tokenizer's tokens, so no chunk is ever truncated by the model.
+         */
+        TOKENS
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.spyder.pdfprocessing.service;
+
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.grpc.Collections.CollectionStatus;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Helpers shared by the benchmark services.
+ */
+final class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    /**
+     * Nearest-rank percentile of ascending values.
+     */
+    static double percentile(double[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * Wait until Qdrant has finished optimizing the collection, so measurements see its final segments.
+     */
+    static void awaitGreen(QdrantClient client, String collection) throws ExecutionException, InterruptedException {
+        while (client.getCollectionInfoAsync(collection).get().getStatus() != CollectionStatus.Green) {
+            Thread.sleep(200);
+        }
+    }
+}
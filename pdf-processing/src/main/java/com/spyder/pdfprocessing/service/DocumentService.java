@@ -1,35 +1,98 @@
 package com.spyder.pdfprocessing.service;
 
 import com.spyder.qdrant.model.DocumentChunk;
-import com.spyder.qdrant.service.QdrantService;
+import com.spyder.qdrant.service.EmbeddingBatchScheduler;
+import com.spyder.qdrant.service.VectorStore;
 import io.qdrant.client.grpc.Points.PointStruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class DocumentService {
-    private final QdrantService qdrantService;
+    private final VectorStore vectorStore;
+    private final EmbeddingBatchScheduler embeddingBatchScheduler;
 
-    public void upsertDocumentChunks(List<DocumentChunk> chunks, List<float[]> embeddings)
+    /**
+     * Bring the points of one source in line with its freshly chunked content.
+     * Chunk IDs are deterministic, so only chunks whose ID is not stored yet are embedded and
+     * upserted, and stored IDs that no longer occur are deleted. An unchanged document causes
+     * no embeddings and no writes.
+     */
+    public void syncDocumentChunks(String source, List<DocumentChunk> chunks)
             throws ExecutionException, InterruptedException {
+        Set<String> existingIds = vectorStore.scrollPointIds(source);
         
-        if (chunks.size() != embeddings.size()) {
-            throw new IllegalArgumentException("Number of chunks must match number of embeddings");
+        Set<String> currentIds = new HashSet<>();
+        List<DocumentChunk> newChunks = new java.util.ArrayList<>();
+        for (DocumentChunk chunk : chunks) {
+            if (currentIds.add(chunk.getId()) && !existingIds.contains(chunk.getId())) {
+                newChunks.add(chunk);
+            }
         }
+        Set<String> staleIds = new HashSet<>(existingIds);
+        staleIds.removeAll(currentIds);
         
-        log.info("Clearing existing points from collection before inserting new document");
-        qdrantService.clearAllPoints();
-        
-        log.info("Upserting {} document chunks to Qdrant", chunks.size());
+        log.info("Source '{}': {} chunks, {} already stored, {} new, {} stale",
+            source, chunks.size(), chunks.size() - newChunks.size(), newChunks.size(), staleIds.size());
         
+        if (!newChunks.isEmpty()) {
+            vectorStore.upsertPoints(embedToPoints(newChunks));
+        }
+        // Delete after upserting so the source is never missing from search in between
+        vectorStore.deletePoints(staleIds);
+    }
+
+    /**
+     * Re-embed and rewrite every chunk of one source, then drop its leftover points.
+     * Other sources in the collection are not touched.
+     */
+    public void replaceDocumentChunks(String source, List<DocumentChunk> chunks)
+            throws ExecutionException, InterruptedException {
+        log.info("Replacing source '{}' with {} chunks", source, chunks.size());
+        vectorStore.replaceSource(source, embedToPoints(chunks));
+    }
+
+    /**
+     * Embed every chunk and write it to the given collection without looking at stored points,
+     * for loading a freshly created collection version.
+     */
+    public void loadDocumentChunks(VectorStore target, List<DocumentChunk> chunks)
+            throws ExecutionException, InterruptedException {
+        target.upsertPoints(embedToPoints(chunks));
+    }
+
+    public void removeSource(String source) throws ExecutionException, InterruptedException {
+        vectorStore.deleteSource(source);
+    }
+
+    private List<PointStruct> embedToPoints(List<DocumentChunk> chunks) {
+        List<float[]> embeddings = embeddingBatchScheduler.generateEmbeddings(chunks);
+        // Chunks that failed to embed come back as zero vectors; leave them out so the next run retries them
+        List<DocumentChunk> embeddedChunks = new java.util.ArrayList<>();
+        List<float[]> embeddedVectors = new java.util.ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            if (java.util.Arrays.equals(embeddings.get(i), new float[embeddings.get(i).length])) {
+                log.warn("Skipping chunk {} on page {}, embedding failed",
+                    chunks.get(i).getMetadata().getChunkIndex(), chunks.get(i).getMetadata().getPageNumber());
+                continue;
+            }
+            embeddedChunks.add(chunks.get(i));
+            embeddedVectors.add(embeddings.get(i));
+        }
+        return toPoints(embeddedChunks, embeddedVectors);
+    }
+
+    private List<PointStruct> toPoints(List<DocumentChunk> chunks, List<float[]> embeddings) {
         List<PointStruct> points = new java.util.ArrayList<>();
         
         for (int i = 0; i < chunks.size(); i++) {
@@ -55,7 +118,7 @@ public class DocumentService {
                 metadata.put("subheading", chunk.getMetadata().getSubheading());
             }
             
-            PointStruct point = qdrantService.createDocumentPoint(
+            PointStruct point = vectorStore.createDocumentPoint(
                 chunk.getId(), 
                 chunk.getContent(), 
                 embedding, 
@@ -63,7 +126,6 @@ public class DocumentService {
             );
             points.add(point);
         }
-        
-        qdrantService.upsertPoints(points);
+        return points;
     }
 }
\ No newline at end of file
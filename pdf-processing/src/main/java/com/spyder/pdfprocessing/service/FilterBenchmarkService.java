@@ -0,0 +1,150 @@
+package com.spyder.pdfprocessing.service;
+
+import com.spyder.qdrant.config.QdrantProperties;
+import com.spyder.qdrant.service.HedgedReads;
+import com.spyder.qdrant.service.QdrantService;
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.grpc.Collections.Distance;
+import io.qdrant.client.grpc.Collections.VectorParams;
+import io.qdrant.client.grpc.Points.PointStruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Measures filtered scroll latency of {@link QdrantService#searchWithFilters} on a synthetic
+ * collection, first without payload indexes and then after {@link QdrantService#ensurePayloadIndexes()}.
+ * The benchmark collection is created next to the configured one and dropped afterwards.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FilterBenchmarkService {
+
+    private static final int VECTOR_SIZE = 16;
+    private static final int INSERT_BATCH = 10_000;
+    private static final int ROUNDS = 20;
+    private static final String[] WORDS = {
+            "starship", "drift", "vow", "iron", "oracle", "sector", "derelict", "salvage", "precursor",
+            "vault", "faction", "settlement", "outpost", "creature", "momentum", "spirit", "supply",
+            "asset", "companion", "path", "module", "legacy", "quest", "bond", "discovery", "peril"};
+
+    private final QdrantClient client;
+    private final QdrantProperties qdrantProperties;
+
+    public void run(int pointCount) throws Exception {
+        QdrantProperties benchmarkProperties = new QdrantProperties();
+        benchmarkProperties.setCollection(qdrantProperties.getCollection() + "-filter-benchmark");
+        benchmarkProperties.setUpsert(qdrantProperties.getUpsert());
+        QdrantService benchmarkService = new QdrantService(client, benchmarkProperties, new HedgedReads(benchmarkProperties));
+        String collection = benchmarkProperties.getCollection();
+
+        if (client.collectionExistsAsync(collection).get()) {
+            client.deleteCollectionAsync(collection).get();
+        }
+        client.createCollectionAsync(collection, VectorParams.newBuilder()
+                .setSize(VECTOR_SIZE)
+                .setDistance(Distance.Cosine)
+                .build()).get();
+        try {
+            populate(benchmarkService, pointCount);
+            Benchmarks.awaitGreen(client, collection);
+
+            Map<String, double[]> before = measure(benchmarkService);
+            long indexStart = System.nanoTime();
+            benchmarkService.ensurePayloadIndexes();
+            Benchmarks.awaitGreen(client, collection);
+            log.info("Built payload indexes in {} ms", (System.nanoTime() - indexStart) / 1_000_000);
+            Map<String, double[]> after = measure(benchmarkService);
+
+            log.info("Filtered scroll latency on {} points (p50 / p95 ms, {} rounds):", pointCount, ROUNDS);
+            for (String query : before.keySet()) {
+                double[] without = before.get(query);
+                double[] with = after.get(query);
+                log.info("  {}: without indexes {} / {}, with indexes {} / {}", query,
+                        format(Benchmarks.percentile(without, 0.50)), format(Benchmarks.percentile(without, 0.95)),
+                        format(Benchmarks.percentile(with, 0.50)), format(Benchmarks.percentile(with, 0.95)));
+            }
+        } finally {
+            client.deleteCollectionAsync(collection).get();
+        }
+    }
+
+    private void populate(QdrantService benchmarkService, int pointCount) throws Exception {
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        List<PointStruct> batch = new ArrayList<>(INSERT_BATCH);
+        for (int i = 0; i < pointCount; i++) {
+            float[] vector = new float[VECTOR_SIZE];
+            for (int d = 0; d < VECTOR_SIZE; d++) {
+                vector[d] = random.nextFloat() - 0.5f;
+            }
+            Map<String, Object> metadata = new HashMap<>();
+            metadata.put("source", "synthetic-" + (i % 20) + ".pdf");
+            metadata.put("document_type", "pdf");
+            metadata.put("page_number", i / 10);
+            metadata.put("chunk_index", i);
+            metadata.put("chapter", "Chapter " + (i / 5000) + " " + phrase(random, 2));
+            metadata.put("heading", phrase(random, 3));
+            metadata.put("subheading", phrase(random, 3));
+            batch.add(benchmarkService.createDocumentPoint(UUID.randomUUID().toString(), phrase(random, 80), vector, metadata));
+            if (batch.size() == INSERT_BATCH) {
+                benchmarkService.upsertPoints(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            benchmarkService.upsertPoints(batch);
+        }
+        log.info("Inserted {} synthetic points in {} ms", pointCount, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private Map<String, double[]> measure(QdrantService benchmarkService) throws Exception {
+        Map<String, double[]> latencies = new LinkedHashMap<>();
+        for (int round = 0; round < ROUNDS; round++) {
+            String word = WORDS[round % WORDS.length];
+            int page = round * 37;
+            time(latencies, "chapter text", round, () -> benchmarkService.searchWithFilters(word, null, null, null, 10));
+            time(latencies, "heading text", round, () -> benchmarkService.searchWithFilters(null, word, null, null, 10));
+            time(latencies, "page number", round, () -> benchmarkService.searchWithFilters(null, null, null, page, 10));
+            time(latencies, "chapter + page", round, () -> benchmarkService.searchWithFilters(word, null, null, page, 10));
+        }
+        latencies.values().forEach(Arrays::sort);
+        return latencies;
+    }
+
+    private static void time(Map<String, double[]> latencies, String query, int round, FilteredQuery filteredQuery) throws Exception {
+        long start = System.nanoTime();
+        filteredQuery.run();
+        latencies.computeIfAbsent(query, key -> new double[ROUNDS])[round] = (System.nanoTime() - start) / 1e6;
+    }
+
+    private static String phrase(Random random, int words) {
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                phrase.append(' ');
+            }
+            phrase.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return phrase.toString();
+    }
+
+    private static String format(double millis) {
+        return String.format("%.2f", millis);
+    }
+
+    @FunctionalInterface
+    private interface FilteredQuery {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,149 @@
+package com.spyder.pdfprocessing.service;
+
+import com.spyder.qdrant.config.EmbeddingProperties;
+import com.spyder.qdrant.service.EmbeddingService;
+import com.spyder.qdrant.service.VectorMath;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares model load time, per-query latency and embedding drift across model variants:
+ * the raw FP32 model, the FP32 model through the optimized-model cache (cold and warm) and,
+ * when configured, the INT8 model. Drift is reported as cosine similarity against FP32.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ModelBenchmarkService {
+
+    private static final List<String> DEFAULT_QUERIES = List.of(
+            "How does hyperspace travel work?",
+            "What weapons can be mounted on a light freighter?",
+            "Rules for resolving ship to ship combat",
+            "Which skills are used when repairing damaged systems?",
+            "Describe the trade routes between core worlds",
+            "How much cargo can a standard hold carry?",
+            "What happens when a character runs out of stamina?",
+            "Faction reputation and how it changes over time");
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 10;
+
+    private final EmbeddingProperties embeddingProperties;
+
+    public void run(Path queriesFile) throws Exception {
+        List<String> queries = queriesFile == null ? DEFAULT_QUERIES : Files.readAllLines(queriesFile).stream()
+                .map(String::strip)
+                .filter(line -> !line.isEmpty())
+                .toList();
+        log.info("Benchmarking model {} with {} queries", embeddingProperties.getModel().getName(), queries.size());
+
+        Path optimizedDirectory = Files.createTempDirectory("optimized-model-benchmark");
+        try {
+            Result baseline = measure("fp32", copyProperties(EmbeddingProperties.Variant.FP32, null), queries, null);
+            measure("fp32 optimized (cold)", copyProperties(EmbeddingProperties.Variant.FP32, optimizedDirectory), queries, baseline);
+            measure("fp32 optimized (warm)", copyProperties(EmbeddingProperties.Variant.FP32, optimizedDirectory), queries, baseline);
+
+            String quantizedPath = embeddingProperties.getModel().getQuantizedOnnxPath();
+            if (quantizedPath == null || quantizedPath.isBlank()) {
+                log.info("No embedding.model.quantized-onnx-path configured, skipping INT8");
+            } else {
+                measure("int8", copyProperties(EmbeddingProperties.Variant.INT8, null), queries, baseline);
+                measure("int8 optimized (cold)", copyProperties(EmbeddingProperties.Variant.INT8, optimizedDirectory), queries, baseline);
+                measure("int8 optimized (warm)", copyProperties(EmbeddingProperties.Variant.INT8, optimizedDirectory), queries, baseline);
+            }
+        } finally {
+            deleteRecursively(optimizedDirectory);
+        }
+    }
+
+    private Result measure(String label, EmbeddingProperties properties, List<String> queries, Result baseline) throws Exception {
+        EmbeddingService service = new EmbeddingService(properties);
+        long loadStart = System.nanoTime();
+        service.initialize();
+        double loadMillis = (System.nanoTime() - loadStart) / 1e6;
+        try {
+            List<float[]> embeddings = new ArrayList<>(queries.size());
+            for (String query : queries) {
+                embeddings.add(service.generateQueryEmbedding(query));
+            }
+            for (int round = 1; round < WARMUP_ROUNDS; round++) {
+                queries.forEach(service::generateQueryEmbedding);
+            }
+
+            double[] latencies = new double[MEASURED_ROUNDS * queries.size()];
+            int sample = 0;
+            for (int round = 0; round < MEASURED_ROUNDS; round++) {
+                for (String query : queries) {
+                    long start = System.nanoTime();
+                    service.generateQueryEmbedding(query);
+                    latencies[sample++] = (System.nanoTime() - start) / 1e6;
+                }
+            }
+            Arrays.sort(latencies);
+
+            String drift = "";
+            if (baseline != null) {
+                double min = 1.0;
+                double sum = 0.0;
+                for (int i = 0; i < embeddings.size(); i++) {
+                    double cosine = VectorMath.cosine(embeddings.get(i), baseline.embeddings().get(i));
+                    min = Math.min(min, cosine);
+                    sum += cosine;
+                }
+                drift = String.format(", cosine vs fp32 mean %.6f min %.6f", sum / embeddings.size(), min);
+            }
+            log.info("{}: load {} ms, query p50 {} ms, p95 {} ms{}", label,
+                    String.format("%.1f", loadMillis),
+                    String.format("%.2f", Benchmarks.percentile(latencies, 0.50)),
+                    String.format("%.2f", Benchmarks.percentile(latencies, 0.95)),
+                    drift);
+            return new Result(embeddings);
+        } finally {
+            service.cleanup();
+        }
+    }
+
+    private EmbeddingProperties copyProperties(EmbeddingProperties.Variant variant, Path optimizedDirectory) {
+        EmbeddingProperties source = embeddingProperties;
+        EmbeddingProperties copy = new EmbeddingProperties();
+        copy.setDimensions(source.getDimensions());
+
+        EmbeddingProperties.Model model = copy.getModel();
+        model.setName(source.getModel().getName());
+        model.setOnnxPath(source.getModel().getOnnxPath());
+        model.setQuantizedOnnxPath(source.getModel().getQuantizedOnnxPath());
+        model.setTokenizerPath(source.getModel().getTokenizerPath());
+        model.setMaxLength(source.getModel().getMaxLength());
+        model.setVariant(variant);
+
+        EmbeddingProperties.Runtime runtime = copy.getRuntime();
+        runtime.setIntraOpThreads(source.getRuntime().getIntraOpThreads());
+        runtime.setInterOpThreads(source.getRuntime().getInterOpThreads());
+        runtime.setOptimizationLevel(source.getRuntime().getOptimizationLevel());
+        runtime.setExecutionMode(source.getRuntime().getExecutionMode());
+        runtime.setCpuArenaAllocator(source.getRuntime().isCpuArenaAllocator());
+        runtime.setMemoryPatternOptimization(source.getRuntime().isMemoryPatternOptimization());
+        runtime.setOptimizedModelDirectory(optimizedDirectory == null ? null : optimizedDirectory.toString());
+        return copy;
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (var paths = Files.walk(directory)) {
+            for (Path path : paths.sorted((a, b) -> b.compareTo(a)).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private record Result(List<float[]> embeddings) {
+    }
+}
@@ -0,0 +1,298 @@
+package com.spyder.pdfprocessing.service;
+
+import com.spyder.qdrant.config.EmbeddingProperties;
+import com.spyder.qdrant.config.QdrantProperties;
+import com.spyder.qdrant.config.VectorStoreProperties;
+import com.spyder.qdrant.model.SearchParameters;
+import com.spyder.qdrant.service.EmbeddingService;
+import com.spyder.qdrant.service.MappedVectors;
+import com.spyder.qdrant.service.QdrantService;
+import com.spyder.qdrant.service.VectorMath;
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.grpc.Collections.CollectionInfo;
+import io.qdrant.client.grpc.Points;
+import io.qdrant.client.grpc.Points.ScrollPoints;
+import io.qdrant.client.grpc.Points.ScrollResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * Measures what the per-request search parameters cost on the live collection. Every vector is exported
+ * into a memory-mapped matrix, the exact top-k of each logged query is computed by brute force over it,
+ * and the queries are replayed through {@link QdrantService#searchSimilarVectors} once per parameter setting.
+ * The report gives recall@k against the exact results and the latency percentiles of each setting, plus
+ * the spread of exact neighbour scores as a guide for {@code score_threshold}.
+ * <p>
+ * The query log is either one query per line or an mcp-server log, from which the queries of
+ * {@code search_similar_chunks} are taken.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecallEvaluationService {
+
+    private static final int K = 10;
+    private static final int WARMUP_QUERIES = 20;
+    private static final int EMBEDDING_BATCH = 32;
+    private static final int EXPORT_PAGE_SIZE = 1000;
+    private static final double TARGET_RECALL = 0.95;
+    private static final int[] HNSW_EF_VALUES = {16, 32, 64, 128, 256, 512};
+    private static final double[] OVERSAMPLING_VALUES = {1.0, 4.0};
+    private static final float NO_SCORE_THRESHOLD = -1f;
+    private static final Pattern LOGGED_QUERY = Pattern.compile("Searching for similar chunks with query: '(.*)', limit: ");
+
+    private final QdrantClient client;
+    private final QdrantService qdrantService;
+    private final QdrantProperties qdrantProperties;
+    private final VectorStoreProperties vectorStoreProperties;
+    private final EmbeddingProperties embeddingProperties;
+    private final EmbeddingService embeddingService;
+
+    public void run(Path queryLog) throws Exception {
+        if (vectorStoreProperties.getType() != VectorStoreProperties.Type.QDRANT) {
+            throw new IllegalArgumentException("--evaluate-recall replays searches against Qdrant and needs vector-store.type QDRANT");
+        }
+        List<String> queries = readQueries(queryLog);
+        if (queries.isEmpty()) {
+            throw new IllegalArgumentException("No queries found in " + queryLog);
+        }
+        String collection = qdrantProperties.getCollection();
+        CollectionInfo info = client.getCollectionInfoAsync(collection).get();
+        log.info("Evaluating recall@{} on '{}': {} points, {} indexed by HNSW, {} queries, {} dot products",
+                K, collection, info.getPointsCount(), info.getIndexedVectorsCount(), queries.size(),
+                VectorMath.isSimd() ? "SIMD" : "scalar");
+        if (info.getIndexedVectorsCount() == 0) {
+            log.warn("No vectors are HNSW-indexed yet, so Qdrant searches exactly and hnsw_ef has no effect");
+        }
+
+        Path matrixFile = Files.createTempFile("recall-evaluation", ".f32");
+        try (MappedVectors matrix = MappedVectors.open(matrixFile, embeddingProperties.getDimensions())) {
+            long exportStart = System.nanoTime();
+            List<String> ids = export(collection, matrix);
+            log.info("Exported {} vectors in {} ms", ids.size(), (System.nanoTime() - exportStart) / 1_000_000);
+
+            List<float[]> embeddings = embed(queries);
+            long exactStart = System.nanoTime();
+            List<ExactResult> exact = IntStream.range(0, embeddings.size()).parallel()
+                    .mapToObj(q -> exactTopK(matrix, ids, embeddings.get(q)))
+                    .toList();
+            log.info("Exact top-{} of {} queries in {} ms", K, queries.size(), (System.nanoTime() - exactStart) / 1_000_000);
+            logScoreSpread(exact);
+
+            List<Measurement> measurements = new ArrayList<>();
+            for (Setting setting : settings(qdrantService.collectionQuantized().get())) {
+                measurements.add(measure(setting, embeddings, exact));
+            }
+            measurements.stream()
+                    .filter(measurement -> measurement.recall() >= TARGET_RECALL)
+                    .min(Comparator.comparingDouble(Measurement::p95))
+                    .ifPresentOrElse(
+                            best -> log.info("Fastest setting with recall@{} >= {}: {} (p95 {} ms)", K, TARGET_RECALL,
+                                    best.label(), String.format("%.3f", best.p95())),
+                            () -> log.info("No setting reached recall@{} >= {}", K, TARGET_RECALL));
+        } finally {
+            Files.deleteIfExists(matrixFile);
+        }
+    }
+
+    /**
+     * Queries logged by mcp-server if the file is such a log, otherwise every non-blank line.
+     * Repeated queries are evaluated once.
+     */
+    private static List<String> readQueries(Path queryLog) throws Exception {
+        List<String> lines = Files.readAllLines(queryLog);
+        Set<String> logged = new LinkedHashSet<>();
+        for (String line : lines) {
+            Matcher matcher = LOGGED_QUERY.matcher(line);
+            if (matcher.find()) {
+                logged.add(matcher.group(1));
+            }
+        }
+        if (!logged.isEmpty()) {
+            return List.copyOf(logged);
+        }
+        Set<String> queries = new LinkedHashSet<>();
+        for (String line : lines) {
+            if (!line.isBlank()) {
+                queries.add(line.strip());
+            }
+        }
+        return List.copyOf(queries);
+    }
+
+    /**
+     * Page through the collection with vectors and no payload, writing each vector L2-normalized into the next matrix slot.
+     */
+    private List<String> export(String collection, MappedVectors matrix) throws Exception {
+        List<String> ids = new ArrayList<>();
+        float[] vector = new float[matrix.dimensions()];
+        Points.PointId offset = null;
+        do {
+            ScrollPoints.Builder scroll = ScrollPoints.newBuilder()
+                    .setCollectionName(collection)
+                    .setLimit(EXPORT_PAGE_SIZE)
+                    .setWithPayload(Points.WithPayloadSelector.newBuilder().setEnable(false).build())
+                    .setWithVectors(Points.WithVectorsSelector.newBuilder().setEnable(true).build());
+            if (offset != null) {
+                scroll.setOffset(offset);
+            }
+            ScrollResponse page = client.scrollAsync(scroll.build(), qdrantProperties.getTimeouts().getScroll()).get();
+            for (Points.RetrievedPoint point : page.getResultList()) {
+                List<Float> data = point.getVectors().getVector().getDataList();
+                if (data.size() != vector.length) {
+                    throw new IllegalStateException("Point " + point.getId().getUuid() + " has " + data.size()
+                            + " dimensions, expected " + vector.length);
+                }
+                for (int d = 0; d < vector.length; d++) {
+                    vector[d] = data.get(d);
+                }
+                matrix.write(ids.size(), VectorMath.l2Normalize(vector));
+                ids.add(point.getId().getUuid());
+            }
+            offset = page.hasNextPageOffset() ? page.getNextPageOffset() : null;
+        } while (offset != null);
+        return ids;
+    }
+
+    private List<float[]> embed(List<String> queries) {
+        List<float[]> embeddings = new ArrayList<>(queries.size());
+        for (int from = 0; from < queries.size(); from += EMBEDDING_BATCH) {
+            List<String> batch = queries.subList(from, Math.min(queries.size(), from + EMBEDDING_BATCH));
+            embeddings.addAll(embeddingService.generateQueryEmbeddings(batch));
+        }
+        return embeddings;
+    }
+
+    /**
+     * Score the query against every row of the matrix. Rows are read with absolute gets, so queries can run in parallel.
+     */
+    private static ExactResult exactTopK(MappedVectors matrix, List<String> ids, float[] queryVector) {
+        float[] query = VectorMath.l2Normalize(queryVector.clone());
+        float[] scratch = new float[matrix.dimensions()];
+        PriorityQueue<Neighbour> best = new PriorityQueue<>(Comparator.comparingDouble(Neighbour::score));
+        for (int slot = 0; slot < ids.size(); slot++) {
+            float score = matrix.dot(slot, query, scratch);
+            if (best.size() < K) {
+                best.add(new Neighbour(slot, score));
+            } else if (score > best.peek().score()) {
+                best.poll();
+                best.add(new Neighbour(slot, score));
+            }
+        }
+        List<Neighbour> sorted = new ArrayList<>(best);
+        sorted.sort(Comparator.comparingDouble(Neighbour::score).reversed());
+        Set<String> expected = new HashSet<>();
+        sorted.forEach(neighbour -> expected.add(ids.get(neighbour.slot())));
+        return new ExactResult(expected,
+                sorted.isEmpty() ? Float.NaN : sorted.getFirst().score(),
+                sorted.isEmpty() ? Float.NaN : sorted.getLast().score());
+    }
+
+    /**
+     * The configured {@code hnsw_ef}, a range of other values, exact search and, when the collection is
+     * quantized, rescoring off and other oversampling factors. Every field that matters is set explicitly,
+     * so no row silently picks up a {@code qdrant.search} default. The score threshold is always the cosine
+     * minimum: a configured threshold would drop true neighbours in every row, including the exact one.
+     */
+    private List<Setting> settings(boolean quantized) {
+        QdrantProperties.Search defaults = qdrantProperties.getSearch();
+        log.info("qdrant.search defaults: hnsw_ef {}, score_threshold {}, oversampling {}, rescore {}; recall is measured "
+                        + "without a score threshold, and oversampling settings only run on a quantized collection ({})",
+                defaults.getHnswEf() != null ? defaults.getHnswEf() : "ef_construct", defaults.getScoreThreshold(),
+                defaults.getOversampling(), defaults.isRescore(), quantized ? "quantized" : "not quantized");
+        List<Setting> settings = new ArrayList<>();
+        Integer configuredEf = defaults.getHnswEf();
+        Double oversampling = quantized ? defaults.getOversampling() : null;
+        Boolean rescore = quantized ? defaults.isRescore() : null;
+        settings.add(new Setting("configured hnsw_ef=" + (configuredEf != null ? configuredEf : "ef_construct"),
+                withoutThreshold(configuredEf, null, oversampling, rescore)));
+        for (int ef : HNSW_EF_VALUES) {
+            settings.add(new Setting("hnsw_ef=" + ef, withoutThreshold(ef, null, oversampling, rescore)));
+        }
+        settings.add(new Setting("exact", withoutThreshold(null, true, oversampling, rescore)));
+        if (quantized) {
+            settings.add(new Setting("rescore=false, oversampling=" + defaults.getOversampling(),
+                    withoutThreshold(configuredEf, null, defaults.getOversampling(), false)));
+            for (double factor : OVERSAMPLING_VALUES) {
+                settings.add(new Setting("rescore=true, oversampling=" + factor,
+                        withoutThreshold(configuredEf, null, factor, true)));
+            }
+        }
+        return settings;
+    }
+
+    private static SearchParameters withoutThreshold(Integer hnswEf, Boolean exact, Double oversampling, Boolean rescore) {
+        return new SearchParameters(hnswEf, exact, NO_SCORE_THRESHOLD, oversampling, rescore);
+    }
+
+    private Measurement measure(Setting setting, List<float[]> embeddings, List<ExactResult> exact) throws Exception {
+        for (int i = 0; i < Math.min(WARMUP_QUERIES, embeddings.size()); i++) {
+            qdrantService.searchSimilarVectors(embeddings.get(i), K, null, setting.parameters());
+        }
+        double[] latencies = new double[embeddings.size()];
+        double recall = 0;
+        for (int q = 0; q < embeddings.size(); q++) {
+            long start = System.nanoTime();
+            List<Points.ScoredPoint> results = qdrantService.searchSimilarVectors(embeddings.get(q), K, null, setting.parameters());
+            latencies[q] = (System.nanoTime() - start) / 1e6;
+            Set<String> expected = exact.get(q).ids();
+            if (expected.isEmpty()) {
+                recall += 1;
+                continue;
+            }
+            long found = results.stream().filter(point -> expected.contains(point.getId().getUuid())).count();
+            recall += (double) found / expected.size();
+        }
+        Arrays.sort(latencies);
+        Measurement measurement = new Measurement(setting.label(), recall / embeddings.size(),
+                Benchmarks.percentile(latencies, 0.50), Benchmarks.percentile(latencies, 0.95), Benchmarks.percentile(latencies, 0.99));
+        log.info("{}: recall@{} {}, latency p50 {} ms, p95 {} ms, p99 {} ms", measurement.label(), K,
+                String.format("%.4f", measurement.recall()), String.format("%.3f", measurement.p50()),
+                String.format("%.3f", measurement.p95()), String.format("%.3f", measurement.p99()));
+        return measurement;
+    }
+
+    /**
+     * A {@code score_threshold} above the usual k-th neighbour score cuts results short for most queries;
+     * one above the usual best score mostly returns nothing.
+     */
+    private static void logScoreSpread(List<ExactResult> exact) {
+        double[] best = exact.stream().mapToDouble(ExactResult::bestScore).filter(score -> !Double.isNaN(score)).sorted().toArray();
+        double[] kth = exact.stream().mapToDouble(ExactResult::kthScore).filter(score -> !Double.isNaN(score)).sorted().toArray();
+        if (best.length == 0) {
+            return;
+        }
+        log.info("Exact best score p5 {}, p50 {}, p95 {}; {}th neighbour score p5 {}, p50 {}, p95 {}",
+                String.format("%.3f", Benchmarks.percentile(best, 0.05)), String.format("%.3f", Benchmarks.percentile(best, 0.50)),
+                String.format("%.3f", Benchmarks.percentile(best, 0.95)), K,
+                String.format("%.3f", Benchmarks.percentile(kth, 0.05)), String.format("%.3f", Benchmarks.percentile(kth, 0.50)),
+                String.format("%.3f", Benchmarks.percentile(kth, 0.95)));
+    }
+
+    private record Neighbour(int slot, float score) {
+    }
+
+    private record ExactResult(Set<String> ids, float bestScore, float kthScore) {
+    }
+
+    private record Setting(String label, SearchParameters parameters) {
+    }
+
+    private record Measurement(String label, double recall, double p50, double p95, double p99) {
+    }
+}
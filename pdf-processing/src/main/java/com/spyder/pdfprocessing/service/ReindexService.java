@@ -0,0 +1,72 @@
+package com.spyder.pdfprocessing.service;
+
+import com.spyder.qdrant.config.EmbeddingProperties;
+import com.spyder.qdrant.config.VectorStoreProperties;
+import com.spyder.qdrant.model.DocumentChunk;
+import com.spyder.qdrant.service.CollectionVersions;
+import com.spyder.qdrant.service.QdrantService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Rebuilds the whole collection from a PDF or a directory of PDFs without disturbing searches:
+ * the documents are loaded into a new collection version, which replaces the live one through an
+ * alias swap only after it is fully indexed. The live collection is never written to.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReindexService {
+
+    private final PdfProcessingService pdfProcessingService;
+    private final DocumentService documentService;
+    private final CollectionVersions collectionVersions;
+    private final EmbeddingProperties embeddingProperties;
+    private final VectorStoreProperties vectorStoreProperties;
+
+    public void run(Path path) throws Exception {
+        if (vectorStoreProperties.getType() != VectorStoreProperties.Type.QDRANT) {
+            throw new IllegalArgumentException("reindex builds Qdrant collection versions and needs vector-store.type QDRANT");
+        }
+        List<Path> pdfs = findPdfs(path);
+        if (pdfs.isEmpty()) {
+            throw new IllegalArgumentException("No PDF files found at " + path);
+        }
+        long start = System.nanoTime();
+        String version = collectionVersions.createVersion(embeddingProperties);
+        try {
+            QdrantService target = collectionVersions.forVersion(version);
+            for (Path pdf : pdfs) {
+                List<DocumentChunk> chunks = pdfProcessingService.processPdf(pdf.toString());
+                log.info("Loading source '{}' with {} chunks into '{}'", pdf.getFileName(), chunks.size(), version);
+                documentService.loadDocumentChunks(target, chunks);
+            }
+            collectionVersions.finishLoad(version);
+            collectionVersions.promote(version);
+        } catch (Exception e) {
+            collectionVersions.discard(version);
+            throw e;
+        }
+        collectionVersions.deleteOldVersions();
+        log.info("Reindexed {} PDF(s) into '{}' in {} s", pdfs.size(), version, (System.nanoTime() - start) / 1_000_000_000);
+    }
+
+    private static List<Path> findPdfs(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return List.of(path);
+        }
+        try (Stream<Path> files = Files.list(path)) {
+            return files
+                    .filter(file -> file.getFileName().toString().toLowerCase().endsWith(".pdf"))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.spyder.pdfprocessing.service;
+
+import com.spyder.qdrant.config.EmbeddingProperties;
+import com.spyder.qdrant.config.QdrantProperties;
+import com.spyder.qdrant.config.VectorStoreProperties;
+import com.spyder.qdrant.model.SearchFilter;
+import com.spyder.qdrant.service.CollectionVersions;
+import com.spyder.qdrant.service.EmbeddedVectorStore;
+import com.spyder.qdrant.service.QdrantService;
+import com.spyder.qdrant.service.VectorMath;
+import com.spyder.qdrant.service.VectorStore;
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.grpc.Points;
+import io.qdrant.client.grpc.Points.PointStruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Compares recall@k and query latency of the embedded HNSW store with the Qdrant path on the same
+ * synthetic, clustered vectors, for unfiltered searches and searches filtered to one source.
+ * Recall is measured against exact brute-force results. The embedded store is built in a temporary
+ * directory and reopened before querying, so its reload time is reported too. Qdrant is skipped
+ * when it cannot be reached; its benchmark collection is dropped afterwards. Qdrant uses the configured
+ * properties under the benchmark collection's name, storage profile and search settings included, so below
+ * its indexing threshold it scans segments exactly, as it would for a single book.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StoreBenchmarkService {
+
+    private static final int K = 10;
+    private static final int QUERIES = 200;
+    private static final int WARMUP_QUERIES = 50;
+    private static final int CLUSTERS = 100;
+    private static final int SOURCES = 5;
+    private static final int INSERT_BATCH = 1000;
+
+    private final QdrantClient client;
+    private final QdrantProperties qdrantProperties;
+    private final CollectionVersions collectionVersions;
+    private final VectorStoreProperties vectorStoreProperties;
+    private final EmbeddingProperties embeddingProperties;
+
+    public void run(int pointCount) throws Exception {
+        int dimensions = embeddingProperties.getDimensions();
+        Random random = new Random(42);
+        float[][] centers = new float[CLUSTERS][];
+        for (int c = 0; c < CLUSTERS; c++) {
+            centers[c] = gaussian(random, dimensions, 1.0f);
+        }
+        float[][] vectors = new float[pointCount][];
+        for (int i = 0; i < pointCount; i++) {
+            vectors[i] = sample(random, centers);
+        }
+        List<Query> queries = new ArrayList<>(QUERIES);
+        for (int q = 0; q < QUERIES; q++) {
+            String source = q % 2 == 0 ? null : source(q);
+            float[] vector = sample(random, centers);
+            queries.add(new Query(vector, source, exactTopK(vectors, vector, source)));
+        }
+        log.info("Benchmarking vector stores on {} points of {} dimensions, {} queries, k={}", pointCount, dimensions, QUERIES, K);
+
+        Path directory = Files.createTempDirectory("vector-store-benchmark");
+        try {
+            long buildStart = System.nanoTime();
+            try (EmbeddedVectorStore store = EmbeddedVectorStore.open(directory, dimensions, vectorStoreProperties.getEmbedded())) {
+                insert(store, vectors);
+            }
+            log.info("Embedded store: built in {} ms", (System.nanoTime() - buildStart) / 1_000_000);
+            long loadStart = System.nanoTime();
+            try (EmbeddedVectorStore store = EmbeddedVectorStore.open(directory, dimensions, vectorStoreProperties.getEmbedded())) {
+                log.info("Embedded store: reopened in {} ms", (System.nanoTime() - loadStart) / 1_000_000);
+                measure("embedded", store, queries);
+            }
+        } finally {
+            deleteRecursively(directory);
+        }
+
+        String collection = qdrantProperties.getCollection() + "-store-benchmark";
+        QdrantService qdrant = collectionVersions.forVersion(collection);
+        try {
+            if (client.collectionExistsAsync(collection).get()) {
+                client.deleteCollectionAsync(collection).get();
+            }
+        } catch (Exception e) {
+            log.warn("Qdrant not reachable, skipping the Qdrant path: {}", e.getMessage());
+            return;
+        }
+        try {
+            long buildStart = System.nanoTime();
+            qdrant.createCollectionIfNotExists(embeddingProperties);
+            insert(qdrant, vectors);
+            Benchmarks.awaitGreen(client, collection);
+            log.info("Qdrant: built in {} ms", (System.nanoTime() - buildStart) / 1_000_000);
+            measure("qdrant", qdrant, queries);
+        } finally {
+            client.deleteCollectionAsync(collection).get();
+        }
+    }
+
+    private static void insert(VectorStore store, float[][] vectors) throws Exception {
+        List<PointStruct> batch = new ArrayList<>(INSERT_BATCH);
+        for (int i = 0; i < vectors.length; i++) {
+            batch.add(store.createDocumentPoint(UUID.nameUUIDFromBytes(("point-" + i).getBytes()).toString(),
+                    "synthetic chunk " + i, vectors[i], Map.of("source", source(i), "page_number", i / 10, "chunk_index", i)));
+            if (batch.size() == INSERT_BATCH) {
+                store.upsertPoints(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            store.upsertPoints(batch);
+        }
+    }
+
+    private static void measure(String label, VectorStore store, List<Query> queries) throws Exception {
+        for (int i = 0; i < WARMUP_QUERIES; i++) {
+            search(store, queries.get(i % queries.size()));
+        }
+        for (boolean filtered : new boolean[]{false, true}) {
+            List<Double> latencies = new ArrayList<>();
+            double recall = 0;
+            for (Query query : queries) {
+                if ((query.source() != null) != filtered) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                List<Points.ScoredPoint> results = search(store, query);
+                latencies.add((System.nanoTime() - start) / 1e6);
+                Set<String> found = new HashSet<>();
+                results.forEach(point -> found.add(point.getId().getUuid()));
+                found.retainAll(query.expected());
+                recall += (double) found.size() / query.expected().size();
+            }
+            double[] sorted = latencies.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+            log.info("{} {}: recall@{} {}, latency p50 {} ms, p99 {} ms", label, filtered ? "filtered by source" : "unfiltered",
+                    K, String.format("%.4f", recall / sorted.length),
+                    String.format("%.3f", Benchmarks.percentile(sorted, 0.50)), String.format("%.3f", Benchmarks.percentile(sorted, 0.99)));
+        }
+    }
+
+    private static List<Points.ScoredPoint> search(VectorStore store, Query query) throws Exception {
+        SearchFilter filter = query.source() == null ? null : new SearchFilter(null, null, null, null, null, null, query.source());
+        return store.searchSimilarVectorsAsync(query.vector(), K, filter, null).get();
+    }
+
+    private static Set<String> exactTopK(float[][] vectors, float[] query, String source) {
+        float[] normalized = VectorMath.l2Normalize(query.clone());
+        Integer[] order = new Integer[vectors.length];
+        float[] scores = new float[vectors.length];
+        int count = 0;
+        for (int i = 0; i < vectors.length; i++) {
+            if (source == null || source.equals(source(i))) {
+                scores[i] = VectorMath.dot(normalized, vectors[i]);
+                order[count++] = i;
+            }
+        }
+        Set<String> ids = new HashSet<>();
+        Arrays.stream(order, 0, count)
+                .sorted(Comparator.comparingDouble((Integer i) -> scores[i]).reversed())
+                .limit(K)
+                .forEach(i -> ids.add(UUID.nameUUIDFromBytes(("point-" + i).getBytes()).toString()));
+        return ids;
+    }
+
+    /**
+     * A normalized point near a random cluster center, roughly how chunk embeddings of one book spread.
+     */
+    private static float[] sample(Random random, float[][] centers) {
+        float[] center = centers[random.nextInt(centers.length)];
+        float[] vector = gaussian(random, center.length, 0.6f);
+        for (int d = 0; d < vector.length; d++) {
+            vector[d] += center[d];
+        }
+        return VectorMath.l2Normalize(vector);
+    }
+
+    private static float[] gaussian(Random random, int dimensions, float scale) {
+        float[] vector = new float[dimensions];
+        for (int d = 0; d < dimensions; d++) {
+            vector[d] = (float) random.nextGaussian() * scale;
+        }
+        return vector;
+    }
+
+    private static String source(int index) {
+        return "synthetic-" + (index % SOURCES) + ".pdf";
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (var paths = Files.walk(directory)) {
+            for (Path path : paths.sorted((a, b) -> b.compareTo(a)).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private record Query(float[] vector, String source, Set<String> expected) {
+    }
+}
@@ -1,8 +1,12 @@
 package com.spyder.pdfprocessing.service;
 
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.jni.CharSpan;
 import com.spyder.pdfprocessing.config.PdfProperties;
 import com.spyder.pdfprocessing.model.PagedFontResult;
 import com.spyder.qdrant.model.DocumentChunk;
+import com.spyder.qdrant.model.TokenizedText;
+import com.spyder.qdrant.service.EmbeddingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -17,6 +21,7 @@ import java.util.Map;
 public class TextChunker {
     
     private final PdfProperties properties;
+    private final EmbeddingService embeddingService;
     
     private int getChunkSize() {
         return properties.getChunking().getSize();
@@ -59,11 +64,13 @@ public class TextChunker {
                 log.debug("Outline hierarchy on page {}: '{}'", pageNumber, hierarchyStr);
             }
             
-            List<String> pageChunks = chunkText(pageText);
+            List<TokenChunk> pageChunks = properties.getChunking().getMode() == PdfProperties.Mode.TOKENS
+                ? chunkTextByTokens(pageText)
+                : chunkText(pageText).stream().map(content -> new TokenChunk(content, null)).toList();
             
-            for (String chunkContent : pageChunks) {
+            for (TokenChunk pageChunk : pageChunks) {
                 DocumentChunk chunk = new DocumentChunk(
-                    chunkContent, 
+                    pageChunk.content(), 
                     fileName, 
                     pageNumber, 
                     currentChapter,
@@ -71,6 +78,7 @@ public class TextChunker {
                     currentSubheading,
                     chunkIndex++
                 );
+                chunk.setTokens(pageChunk.tokens());
                 chunks.add(chunk);
             }
         }
@@ -108,6 +116,103 @@ public class TextChunker {
         return chunks;
     }
     
+    /**
+     * Split text on a token budget using the embedding tokenizer. Chunk ends snap back to a
+     * sentence or word boundary when one is close enough, the overlap is counted in tokens, and
+     * each chunk keeps the exact model input for its token window so it is never re-tokenized
+     * or truncated by the embedder.
+     */
+    public List<TokenChunk> chunkTextByTokens(String text) {
+        List<TokenChunk> chunks = new ArrayList<>();
+        
+        if (text == null || text.isBlank()) {
+            return chunks;
+        }
+        
+        Encoding encoding = embeddingService.encodeForChunking(text);
+        long[] ids = encoding.getIds();
+        CharSpan[] spans = encoding.getCharTokenSpans();
+        int tokenCount = ids.length;
+        
+        // The configured budget includes special tokens, the model's max length is the hard cap
+        int budget = embeddingService.getContentTokenBudget();
+        int configured = properties.getChunking().getMaxTokens();
+        if (configured > 0) {
+            budget = Math.min(budget, configured - embeddingService.getSpecialTokenCount());
+        }
+        budget = Math.max(1, budget);
+        int overlap = Math.max(0, Math.min(properties.getChunking().getOverlapTokens(), budget / 2));
+        
+        int start = 0;
+        while (start < tokenCount) {
+            int end = Math.min(start + budget, tokenCount);
+            
+            if (end < tokenCount) {
+                end = snapEnd(text, spans, start, end);
+            }
+            
+            int from = Math.min(spans[start].getStart(), text.length());
+            int to = Math.min(spans[end - 1].getEnd(), text.length());
+            String content = text.substring(from, to).trim();
+            if (!content.isEmpty()) {
+                chunks.add(new TokenChunk(content, embeddingService.toModelInput(ids, start, end)));
+            }
+            
+            if (end >= tokenCount) {
+                break;
+            }
+            
+            start = snapStart(text, spans, Math.max(start + 1, end - overlap), end);
+        }
+        
+        return chunks;
+    }
+    
+    /**
+     * Move a chunk end back to the nearest sentence boundary, or failing that word boundary,
+     * within the last half of the window.
+     */
+    private int snapEnd(String text, CharSpan[] spans, int start, int end) {
+        int floor = start + (end - start) / 2;
+        for (int i = end; i > floor; i--) {
+            if (startsWord(text, spans, i) && endsSentence(text, spans[i - 1])) {
+                return i;
+            }
+        }
+        for (int i = end; i > floor; i--) {
+            if (startsWord(text, spans, i)) {
+                return i;
+            }
+        }
+        return end;
+    }
+    
+    /**
+     * Move an overlap start forward to the next word start so chunks never begin mid-word.
+     */
+    private int snapStart(String text, CharSpan[] spans, int start, int limit) {
+        for (int i = start; i < limit; i++) {
+            if (startsWord(text, spans, i)) {
+                return i;
+            }
+        }
+        return start;
+    }
+    
+    private boolean startsWord(String text, CharSpan[] spans, int index) {
+        int charStart = spans[index].getStart();
+        return charStart > 0 && charStart <= text.length() && Character.isWhitespace(text.charAt(charStart - 1));
+    }
+    
+    private boolean endsSentence(String text, CharSpan span) {
+        int last = Math.min(span.getEnd(), text.length()) - 1;
+        if (last < 0) {
+            return false;
+        }
+        char c = text.charAt(last);
+        return c == '.' || c == '!' || c == '?';
+    }
+    
     public List<String> chunkBySentences(String text, int maxSentencesPerChunk) {
         List<String> chunks = new ArrayList<>();
         
@@ -139,4 +244,7 @@ public class TextChunker {
         
         return chunks;
     }
-}
\ No newline at end of file
+
+    public record TokenChunk(String content, TokenizedText tokens) {
+    }
+}
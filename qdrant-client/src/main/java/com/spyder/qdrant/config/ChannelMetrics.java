@@ -0,0 +1,105 @@
+package com.spyder.qdrant.config;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-method call counts, failures and latency for the Qdrant gRPC channels, plus how
+ * calls were spread over the channel pool.
+ */
+public class ChannelMetrics implements ClientInterceptor {
+
+    private final Map<String, MethodCounters> methods = new ConcurrentHashMap<>();
+    private final Map<Status.Code, LongAdder> statusCodes = new ConcurrentHashMap<>();
+    private final AtomicLongArray callsPerChannel;
+
+    public ChannelMetrics(int channels) {
+        this.callsPerChannel = new AtomicLongArray(Math.max(1, channels));
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                               CallOptions callOptions, Channel next) {
+        MethodCounters counters = methods.computeIfAbsent(method.getFullMethodName(), name -> new MethodCounters());
+        return new ForwardingClientCall.SimpleForwardingClientCall<>(next.newCall(method, callOptions)) {
+            @Override
+            public void start(Listener<RespT> responseListener, Metadata headers) {
+                long start = System.nanoTime();
+                counters.calls.increment();
+                counters.inFlight.incrementAndGet();
+                super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(responseListener) {
+                    @Override
+                    public void onClose(Status status, Metadata trailers) {
+                        counters.record(System.nanoTime() - start, status.isOk());
+                        statusCodes.computeIfAbsent(status.getCode(), code -> new LongAdder()).increment();
+                        super.onClose(status, trailers);
+                    }
+                }, headers);
+            }
+        };
+    }
+
+    void recordChannel(int index) {
+        callsPerChannel.incrementAndGet(index);
+    }
+
+    public Stats getStats() {
+        Map<String, MethodStats> methodStats = new TreeMap<>();
+        methods.forEach((name, counters) -> methodStats.put(name, counters.snapshot()));
+        Map<Status.Code, Long> codes = new EnumMap<>(Status.Code.class);
+        statusCodes.forEach((code, count) -> codes.put(code, count.sum()));
+        List<Long> perChannel = new ArrayList<>(callsPerChannel.length());
+        for (int i = 0; i < callsPerChannel.length(); i++) {
+            perChannel.add(callsPerChannel.get(i));
+        }
+        return new Stats(methodStats, codes, perChannel);
+    }
+
+    public record Stats(Map<String, MethodStats> methods, Map<Status.Code, Long> statusCodes, List<Long> callsPerChannel) {
+    }
+
+    public record MethodStats(long calls, long failures, long inFlight, double meanMillis, double maxMillis) {
+    }
+
+    private static final class MethodCounters {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final AtomicLong inFlight = new AtomicLong();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void record(long nanos, boolean ok) {
+            inFlight.decrementAndGet();
+            completed.increment();
+            if (!ok) {
+                failures.increment();
+            }
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private MethodStats snapshot() {
+            long done = completed.sum();
+            double mean = done == 0 ? 0.0 : totalNanos.sum() / 1e6 / done;
+            return new MethodStats(calls.sum(), failures.sum(), inFlight.get(), mean, maxNanos.get() / 1e6);
+        }
+    }
+}
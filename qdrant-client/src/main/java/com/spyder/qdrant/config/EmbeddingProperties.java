@@ -1,5 +1,7 @@
 package com.spyder.qdrant.config;
 
+import ai.onnxruntime.OrtSession.SessionOptions.ExecutionMode;
+import ai.onnxruntime.OrtSession.SessionOptions.OptLevel;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
@@ -10,6 +12,9 @@ import org.springframework.stereotype.Component;
 public class EmbeddingProperties {
     private int dimensions = 384;
     private Model model = new Model();
+    private Batch batch = new Batch();
+    private Runtime runtime = new Runtime();
+    private Cache cache = new Cache();
     
     @Data
     public static class Model {
@@ -17,5 +22,89 @@ public class EmbeddingProperties {
         private String onnxPath;
         private String tokenizerPath = "models/tokenizer.json";
         private int maxLength = 512;
+
+        /**
+         * Which model file to load: the FP32 {@code onnx-path} or the INT8 {@code quantized-onnx-path}.
+         */
+        private Variant variant = Variant.FP32;
+
+        /**
+         * Dynamically quantized INT8 export of the same model, see EMBEDDING_SETUP.md.
+         */
+        private String quantizedOnnxPath;
+
+        public String resolveOnnxPath() {
+            return variant == Variant.INT8 ? quantizedOnnxPath : onnxPath;
+        }
+    }
+
+    public enum Variant {
+        FP32,
+        INT8
+    }
+
+    @Data
+    public static class Batch {
+        /**
+         * Number of chunks packed into a single ONNX inference call.
+         */
+        private int size = 32;
+
+        /**
+         * Upper bound on padded tokens (rows x longest row) per batch when chunks are length-bucketed.
+         */
+        private int maxTokens = 16384;
+    }
+
+    @Data
+    public static class Runtime {
+        /**
+         * Number of ONNX sessions loaded for the model.
+         */
+        private int sessions = 1;
+
+        /**
+         * How many inference calls may run on the same session at once.
+         */
+        private int concurrentRunsPerSession = 1;
+
+        /**
+         * Intra-op thread count per session, 0 lets ONNX Runtime decide.
+         */
+        private int intraOpThreads = 0;
+
+        /**
+         * Inter-op thread count per session, 0 lets ONNX Runtime decide. Only used in parallel execution mode.
+         */
+        private int interOpThreads = 0;
+
+        private OptLevel optimizationLevel = OptLevel.ALL_OPT;
+        private ExecutionMode executionMode = ExecutionMode.SEQUENTIAL;
+        private boolean cpuArenaAllocator = true;
+        private boolean memoryPatternOptimization = true;
+
+        /**
+         * Probe candidate thread splits at startup and keep the fastest one for this host.
+         */
+        private boolean autoTune = false;
+
+        /**
+         * Directory for graph-optimized copies of the model, reused across starts. Empty disables it.
+         */
+        private String optimizedModelDirectory;
+    }
+
+    @Data
+    public static class Cache {
+        /**
+         * Reuse chunk embeddings from previous ingest runs instead of re-running inference.
+         */
+        private boolean enabled = false;
+        private String directory = "embedding-cache";
+
+        /**
+         * Maximum number of cached vectors; least recently used entries are evicted beyond this.
+         */
+        private int maxEntries = 100_000;
     }
-}
\ No newline at end of file
+}
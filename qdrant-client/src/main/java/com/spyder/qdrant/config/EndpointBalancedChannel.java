@@ -0,0 +1,254 @@
+package com.spyder.qdrant.config;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ConnectivityState;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.qdrant.client.grpc.QdrantGrpc;
+import io.qdrant.client.grpc.QdrantOuterClass.HealthCheckReply;
+import io.qdrant.client.grpc.QdrantOuterClass.HealthCheckRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends point reads to a set of read endpoints (replicas) and everything else to the write endpoint.
+ * Each read goes to the better of two randomly picked healthy endpoints, scored by latency EWMA
+ * times outstanding calls. Endpoints failing {@code unhealthy-threshold} health checks or calls in a
+ * row are ejected, and re-admitted after {@code healthy-threshold} successful health checks.
+ */
+@Slf4j
+class EndpointBalancedChannel extends ManagedChannel {
+
+    private final ManagedChannel writeChannel;
+    private final List<ReadEndpoint> endpoints;
+    private final QdrantProperties.Balancing config;
+    private final ScheduledFuture<?> healthChecks;
+
+    EndpointBalancedChannel(ManagedChannel writeChannel, List<String> readAddresses, List<ManagedChannel> readChannels,
+                            QdrantProperties.Balancing config, ScheduledExecutorService scheduler) {
+        this.writeChannel = writeChannel;
+        this.config = config;
+        List<ReadEndpoint> readEndpoints = new ArrayList<>(readChannels.size());
+        for (int i = 0; i < readChannels.size(); i++) {
+            readEndpoints.add(new ReadEndpoint(readAddresses.get(i), readChannels.get(i)));
+        }
+        this.endpoints = List.copyOf(readEndpoints);
+        long interval = config.getHealthCheckInterval().toMillis();
+        this.healthChecks = scheduler.scheduleWithFixedDelay(this::checkHealth, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions) {
+        if (!RoundRobinChannel.isRead(method)) {
+            return writeChannel.newCall(method, callOptions);
+        }
+        ReadEndpoint endpoint = choose();
+        return endpoint.track(endpoint.channel.newCall(method, callOptions));
+    }
+
+    /**
+     * Power of two choices over the healthy endpoints. With every endpoint ejected all of them are
+     * candidates again, since failing fast helps nobody when there is nowhere else to go.
+     */
+    private ReadEndpoint choose() {
+        List<ReadEndpoint> candidates = endpoints.stream().filter(endpoint -> endpoint.healthy).toList();
+        if (candidates.isEmpty()) {
+            candidates = endpoints;
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ReadEndpoint a = candidates.get(first);
+        ReadEndpoint b = candidates.get(second);
+        return a.score() <= b.score() ? a : b;
+    }
+
+    private void checkHealth() {
+        for (ReadEndpoint endpoint : endpoints) {
+            Futures.addCallback(QdrantGrpc.newFutureStub(endpoint.channel)
+                    .withDeadlineAfter(config.getHealthCheckTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                    .healthCheck(HealthCheckRequest.getDefaultInstance()),
+                new FutureCallback<HealthCheckReply>() {
+                    @Override
+                    public void onSuccess(HealthCheckReply reply) {
+                        endpoint.checkSucceeded();
+                    }
+
+                    @Override
+                    public void onFailure(Throwable error) {
+                        endpoint.failed("health check: " + Status.fromThrowable(error).getCode());
+                    }
+                }, MoreExecutors.directExecutor());
+        }
+    }
+
+    List<QdrantChannelFactory.EndpointStats> getEndpointStats() {
+        return endpoints.stream()
+            .map(endpoint -> new QdrantChannelFactory.EndpointStats(endpoint.address, endpoint.healthy, endpoint.ewmaNanos / 1e6,
+                endpoint.inFlight.get(), endpoint.calls.sum(), endpoint.ejections.get()))
+            .toList();
+    }
+
+    @Override
+    public String authority() {
+        return writeChannel.authority();
+    }
+
+    @Override
+    public ManagedChannel shutdown() {
+        healthChecks.cancel(false);
+        writeChannel.shutdown();
+        endpoints.forEach(endpoint -> endpoint.channel.shutdown());
+        return this;
+    }
+
+    @Override
+    public ManagedChannel shutdownNow() {
+        healthChecks.cancel(false);
+        writeChannel.shutdownNow();
+        endpoints.forEach(endpoint -> endpoint.channel.shutdownNow());
+        return this;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return writeChannel.isShutdown() && endpoints.stream().allMatch(endpoint -> endpoint.channel.isShutdown());
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return writeChannel.isTerminated() && endpoints.stream().allMatch(endpoint -> endpoint.channel.isTerminated());
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!writeChannel.awaitTermination(timeout, unit)) {
+            return false;
+        }
+        for (ReadEndpoint endpoint : endpoints) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !endpoint.channel.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public ConnectivityState getState(boolean requestConnection) {
+        return writeChannel.getState(requestConnection);
+    }
+
+    @Override
+    public void resetConnectBackoff() {
+        writeChannel.resetConnectBackoff();
+        endpoints.forEach(endpoint -> endpoint.channel.resetConnectBackoff());
+    }
+
+    @Override
+    public void enterIdle() {
+        writeChannel.enterIdle();
+        endpoints.forEach(endpoint -> endpoint.channel.enterIdle());
+    }
+
+    private final class ReadEndpoint {
+        private final String address;
+        private final ManagedChannel channel;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LongAdder calls = new LongAdder();
+        private final AtomicInteger ejections = new AtomicInteger();
+        private volatile double ewmaNanos;
+        private volatile boolean healthy = true;
+        private int consecutiveFailures;
+        private int consecutiveSuccesses;
+
+        private ReadEndpoint(String address, ManagedChannel channel) {
+            this.address = address;
+            this.channel = channel;
+        }
+
+        /**
+         * Expected wait for one more call. Endpoints without samples score zero so they get tried.
+         */
+        private double score() {
+            return ewmaNanos * (inFlight.get() + 1);
+        }
+
+        private <ReqT, RespT> ClientCall<ReqT, RespT> track(ClientCall<ReqT, RespT> call) {
+            return new ForwardingClientCall.SimpleForwardingClientCall<>(call) {
+                @Override
+                public void start(Listener<RespT> responseListener, Metadata headers) {
+                    long start = System.nanoTime();
+                    calls.increment();
+                    inFlight.incrementAndGet();
+                    super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(responseListener) {
+                        @Override
+                        public void onClose(Status status, Metadata trailers) {
+                            inFlight.decrementAndGet();
+                            completed(status, System.nanoTime() - start);
+                            super.onClose(status, trailers);
+                        }
+                    }, headers);
+                }
+            };
+        }
+
+        private void completed(Status status, long latencyNanos) {
+            switch (status.getCode()) {
+                // Cancelled calls (e.g. a losing hedge) say nothing about the endpoint
+                case CANCELLED -> {
+                }
+                case UNAVAILABLE -> failed("call: UNAVAILABLE");
+                default -> {
+                    synchronized (this) {
+                        ewmaNanos = ewmaNanos == 0 ? latencyNanos : ewmaNanos + config.getEwmaAlpha() * (latencyNanos - ewmaNanos);
+                        consecutiveFailures = 0;
+                    }
+                }
+            }
+        }
+
+        private synchronized void failed(String reason) {
+            consecutiveSuccesses = 0;
+            if (++consecutiveFailures >= config.getUnhealthyThreshold() && healthy) {
+                healthy = false;
+                ejections.incrementAndGet();
+                log.warn("Ejected Qdrant read endpoint {} after {} failures (last {})", address, consecutiveFailures, reason);
+            }
+        }
+
+        private synchronized void checkSucceeded() {
+            consecutiveFailures = 0;
+            if (!healthy && ++consecutiveSuccesses >= config.getHealthyThreshold()) {
+                healthy = true;
+                consecutiveSuccesses = 0;
+                // Start from a clean slate; the old latency may be what got it ejected
+                ewmaNanos = 0;
+                log.info("Re-admitted Qdrant read endpoint {}", address);
+            }
+        }
+    }
+}
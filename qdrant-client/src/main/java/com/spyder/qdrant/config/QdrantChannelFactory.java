@@ -0,0 +1,215 @@
+package com.spyder.qdrant.config;
+
+import com.google.protobuf.MessageLite;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.MethodDescriptor;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.nio.NioEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.socket.nio.NioSocketChannel;
+import io.grpc.netty.shaded.io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the gRPC channels for the Qdrant client from {@link QdrantProperties.Channel}: keepalive,
+ * deadlines for calls that set none, optional GZIP for large upserts, dedicated event loop and
+ * executor threads, and a round-robin pool when {@code pool-size} is above one. With read endpoints
+ * configured, reads are balanced over those and the main host only takes writes.
+ */
+@Slf4j
+public class QdrantChannelFactory implements AutoCloseable {
+
+    private static final String UPSERT_METHOD = "qdrant.Points/Upsert";
+
+    private final QdrantProperties.Channel config;
+    private final ChannelMetrics metrics;
+    private final EventLoopGroup eventLoopGroup;
+    private final ExecutorService executor;
+    private final List<EndpointBalancedChannel> balancedChannels = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService healthCheckScheduler;
+
+    public QdrantChannelFactory(QdrantProperties.Channel config) {
+        this.config = config;
+        this.metrics = new ChannelMetrics(config.getPoolSize());
+        this.eventLoopGroup = config.getEventLoopThreads() > 0
+            ? new NioEventLoopGroup(config.getEventLoopThreads(), new DefaultThreadFactory("qdrant-grpc-event-loop", true))
+            : null;
+        this.executor = config.getExecutorThreads() > 0
+            ? Executors.newFixedThreadPool(config.getExecutorThreads(), daemonThreads("qdrant-grpc-executor-"))
+            : null;
+    }
+
+    /**
+     * A single channel, or a {@link RoundRobinChannel} over {@code pool-size} channels, to the given server.
+     */
+    public ManagedChannel create(String host, int port) {
+        int poolSize = Math.max(1, config.getPoolSize());
+        List<ManagedChannel> channels = new ArrayList<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            channels.add(createChannel(host, port));
+        }
+        log.info("Qdrant gRPC channel to {}:{}: pool size {}, keepalive {}, default deadline {}, compression {}",
+            host, port, poolSize, config.getKeepAliveTime(), config.getDefaultDeadline(), config.getCompression());
+        return new RoundRobinChannel(channels, metrics);
+    }
+
+    /**
+     * Like {@link #create(String, int)} for the write endpoint, with point reads balanced over
+     * {@code readEndpoints}. Without read endpoints this is the same as {@code create(host, port)}.
+     */
+    public ManagedChannel create(String host, int port, List<QdrantProperties.Endpoint> readEndpoints,
+                                 QdrantProperties.Balancing balancing) {
+        if (readEndpoints == null || readEndpoints.isEmpty()) {
+            return create(host, port);
+        }
+        ManagedChannel writeChannel = create(host, port);
+        List<String> addresses = new ArrayList<>(readEndpoints.size());
+        List<ManagedChannel> readChannels = new ArrayList<>(readEndpoints.size());
+        for (QdrantProperties.Endpoint endpoint : readEndpoints) {
+            addresses.add(endpoint.getHost() + ":" + endpoint.getPort());
+            readChannels.add(create(endpoint.getHost(), endpoint.getPort()));
+        }
+        log.info("Qdrant writes go to {}:{}, reads are balanced over {}", host, port, addresses);
+        EndpointBalancedChannel channel = new EndpointBalancedChannel(writeChannel, addresses, readChannels, balancing,
+            healthCheckScheduler());
+        balancedChannels.add(channel);
+        return channel;
+    }
+
+    private synchronized ScheduledExecutorService healthCheckScheduler() {
+        if (healthCheckScheduler == null) {
+            healthCheckScheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("qdrant-health-check-"));
+        }
+        return healthCheckScheduler;
+    }
+
+    /**
+     * Health, latency and load of every balanced read endpoint.
+     */
+    public List<EndpointStats> getEndpointStats() {
+        return balancedChannels.stream().flatMap(channel -> channel.getEndpointStats().stream()).toList();
+    }
+
+    public record EndpointStats(String address, boolean healthy, double ewmaMillis, int inFlight, long calls, int ejections) {
+    }
+
+    private ManagedChannel createChannel(String host, int port) {
+        ManagedChannelBuilder<?> builder = transport(host, port)
+            .keepAliveTime(config.getKeepAliveTime().toMillis(), TimeUnit.MILLISECONDS)
+            .keepAliveTimeout(config.getKeepAliveTimeout().toMillis(), TimeUnit.MILLISECONDS)
+            .keepAliveWithoutCalls(config.isKeepAliveWithoutCalls())
+            .idleTimeout(config.getIdleTimeout().toMillis(), TimeUnit.MILLISECONDS)
+            .maxInboundMessageSize(config.getMaxInboundMessageSize())
+            // The last interceptor runs first, so metrics see the final call options
+            .intercept(new CompressionInterceptor(), new DeadlineInterceptor(), metrics);
+        if (executor != null) {
+            builder.executor(executor);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Plaintext Netty transport to the server, on the dedicated event loop when one is configured.
+     * Tests substitute an in-process transport.
+     */
+    ManagedChannelBuilder<?> transport(String host, int port) {
+        NettyChannelBuilder builder = NettyChannelBuilder.forAddress(host, port).usePlaintext();
+        if (eventLoopGroup != null) {
+            builder.eventLoopGroup(eventLoopGroup).channelType(NioSocketChannel.class);
+        }
+        return builder;
+    }
+
+    public ChannelMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Release the event loop and executor threads; call after the channels have been shut down.
+     */
+    @Override
+    public void close() {
+        log.info("Qdrant gRPC channel stats: {}", metrics.getStats());
+        if (!balancedChannels.isEmpty()) {
+            log.info("Qdrant read endpoints: {}", getEndpointStats());
+        }
+        synchronized (this) {
+            if (healthCheckScheduler != null) {
+                healthCheckScheduler.shutdownNow();
+            }
+        }
+        if (eventLoopGroup != null) {
+            eventLoopGroup.shutdownGracefully(0, 2, TimeUnit.SECONDS);
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Applies {@code default-deadline} or the method's entry in {@code method-deadlines} when the
+     * caller did not set a deadline of its own.
+     */
+    private class DeadlineInterceptor implements ClientInterceptor {
+        @Override
+        public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                                   CallOptions callOptions, Channel next) {
+            if (callOptions.getDeadline() == null) {
+                Duration deadline = config.getMethodDeadlines().getOrDefault(method.getFullMethodName(),
+                    config.getMethodDeadlines().getOrDefault(method.getBareMethodName(), config.getDefaultDeadline()));
+                if (deadline != null && !deadline.isZero()) {
+                    callOptions = callOptions.withDeadlineAfter(deadline.toNanos(), TimeUnit.NANOSECONDS);
+                }
+            }
+            return next.newCall(method, callOptions);
+        }
+    }
+
+    /**
+     * GZIP for upsert messages of at least {@code compression-min-bytes}. Compression costs more CPU
+     * than it saves on small requests, so it is decided per message.
+     */
+    private class CompressionInterceptor implements ClientInterceptor {
+        @Override
+        public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                                   CallOptions callOptions, Channel next) {
+            if (config.getCompression() != QdrantProperties.Compression.GZIP || !UPSERT_METHOD.equals(method.getFullMethodName())) {
+                return next.newCall(method, callOptions);
+            }
+            return new ForwardingClientCall.SimpleForwardingClientCall<>(next.newCall(method, callOptions.withCompression("gzip"))) {
+                @Override
+                public void sendMessage(ReqT message) {
+                    setMessageCompression(message instanceof MessageLite lite
+                        && lite.getSerializedSize() >= config.getCompressionMinBytes());
+                    super.sendMessage(message);
+                }
+            };
+        }
+    }
+}
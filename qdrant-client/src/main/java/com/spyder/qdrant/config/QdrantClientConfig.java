@@ -12,12 +12,22 @@ public class QdrantClientConfig {
 
     private final QdrantProperties properties;
 
+    @Bean(destroyMethod = "close")
+    public QdrantChannelFactory qdrantChannelFactory() {
+        return new QdrantChannelFactory(properties.getChannel());
+    }
+
+    @Bean
+    public ChannelMetrics qdrantChannelMetrics(QdrantChannelFactory channelFactory) {
+        return channelFactory.getMetrics();
+    }
+
     @Bean
-    public QdrantClient qdrantClient() {
+    public QdrantClient qdrantClient(QdrantChannelFactory channelFactory) {
         return new QdrantClient(QdrantGrpcClient.newBuilder(
-            properties.getHost(),
-            properties.getPort(),
-            false
+            channelFactory.create(properties.getHost(), properties.getPort(),
+                properties.getReadEndpoints(), properties.getBalancing()),
+            true
         ).build());
     }
-}
\ No newline at end of file
+}
@@ -4,12 +4,256 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @ConfigurationProperties(prefix = "qdrant")
 @Component
 @Data
 public class QdrantProperties {
+    /**
+     * The write endpoint; it also serves reads unless {@code read-endpoints} is set.
+     */
     private String host = "localhost";
     private int port = 6334;
+
+    /**
+     * Replicas that point reads (search, scroll, count...) are balanced over.
+     */
+    private List<Endpoint> readEndpoints = new ArrayList<>();
+    private Balancing balancing = new Balancing();
     private int restPort = 6333;
+
+    /**
+     * Name all reads and writes go through. After a {@code reindex} it is an alias of the live versioned collection.
+     */
     private String collection = "starforged";
+    private Upsert upsert = new Upsert();
+    private Storage storage = new Storage();
+    private Search search = new Search();
+    private Timeouts timeouts = new Timeouts();
+    private Channel channel = new Channel();
+    private Hedging hedging = new Hedging();
+    private Reindex reindex = new Reindex();
+
+    @Data
+    public static class Upsert {
+        /**
+         * Maximum number of points per UpsertPoints request.
+         */
+        private int batchSize = 256;
+
+        /**
+         * Maximum serialized size of the points in one request, kept well under the gRPC message limit.
+         */
+        private int maxBatchBytes = 2 * 1024 * 1024;
+
+        /**
+         * Number of upsert requests that may be awaiting acknowledgement at once.
+         */
+        private int maxInFlight = 4;
+
+        /**
+         * Retries per batch for transient gRPC failures (unavailable, deadline exceeded, resource exhausted).
+         */
+        private int maxRetries = 5;
+        private Duration initialBackoff = Duration.ofMillis(200);
+        private Duration maxBackoff = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class Storage {
+        /**
+         * DEFAULT keeps Qdrant's defaults, LOW_LATENCY and LOW_MEMORY are presets, CUSTOM uses the fields below.
+         */
+        private Profile profile = Profile.DEFAULT;
+        private Quantization quantization = Quantization.NONE;
+
+        /**
+         * Keep quantized vectors in RAM even when the original vectors are on disk.
+         */
+        private boolean quantizedAlwaysRam = true;
+        private boolean onDiskVectors = false;
+        private boolean onDiskPayload = false;
+
+        /**
+         * HNSW and optimizer settings; unset values keep Qdrant's defaults.
+         */
+        private Integer hnswM;
+        private Integer hnswEfConstruct;
+        private Integer indexingThresholdKb;
+        private Integer memmapThresholdKb;
+
+        /**
+         * Apply the profile to an existing collection whose config differs, instead of only warning.
+         */
+        private boolean updateExisting = false;
+    }
+
+    public enum Profile {
+        DEFAULT,
+        LOW_LATENCY,
+        LOW_MEMORY,
+        CUSTOM
+    }
+
+    public enum Quantization {
+        NONE,
+        SCALAR,
+        BINARY
+    }
+
+    @Data
+    public static class Search {
+        /**
+         * With quantization on, fetch this many times the limit from the quantized index before rescoring.
+         */
+        private double oversampling = 2.0;
+
+        /**
+         * Re-rank quantized candidates with the original vectors.
+         */
+        private boolean rescore = true;
+
+        /**
+         * HNSW candidate list size for searches that do not set their own; null keeps Qdrant's default,
+         * which is the collection's {@code ef_construct}.
+         */
+        private Integer hnswEf;
+
+        /**
+         * Minimum cosine similarity of returned points for searches that do not set their own;
+         * null returns the top results regardless of score.
+         */
+        private Float scoreThreshold;
+    }
+
+    /**
+     * gRPC deadlines per kind of call; a call past its deadline fails with DEADLINE_EXCEEDED.
+     */
+    @Data
+    public static class Timeouts {
+        private Duration search = Duration.ofSeconds(5);
+        private Duration scroll = Duration.ofSeconds(10);
+        private Duration write = Duration.ofSeconds(60);
+    }
+
+    /**
+     * Full rebuilds into a versioned shadow collection that the collection alias is swapped to.
+     */
+    @Data
+    public static class Reindex {
+        /**
+         * Previous versions kept after a swap, for rolling back by repointing the alias.
+         */
+        private int retainVersions = 1;
+
+        /**
+         * Indexing threshold restored after the bulk load when the storage profile sets none (Qdrant's default).
+         */
+        private int indexingThresholdKb = 20000;
+        private Duration optimizationTimeout = Duration.ofMinutes(30);
+        private Duration pollInterval = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Endpoint {
+        private String host;
+        private int port = 6334;
+    }
+
+    /**
+     * Health checking and latency tracking of the read endpoints.
+     */
+    @Data
+    public static class Balancing {
+        private Duration healthCheckInterval = Duration.ofSeconds(5);
+        private Duration healthCheckTimeout = Duration.ofSeconds(1);
+
+        /**
+         * Consecutive failed health checks or UNAVAILABLE calls before an endpoint is ejected.
+         */
+        private int unhealthyThreshold = 2;
+
+        /**
+         * Consecutive successful health checks before an ejected endpoint takes reads again.
+         */
+        private int healthyThreshold = 2;
+
+        /**
+         * Weight of the newest latency sample in the per-endpoint moving average.
+         */
+        private double ewmaAlpha = 0.3;
+    }
+
+    /**
+     * Hedged reads: a read still running after the rolling percentile latency of its kind is sent again.
+     */
+    @Data
+    public static class Hedging {
+        private boolean enabled = false;
+
+        /**
+         * Latency percentile, over the last {@code window-size} reads, after which a hedge is sent.
+         */
+        private double percentile = 0.95;
+        private int windowSize = 1000;
+
+        /**
+         * Delay used until {@code min-samples} reads have been seen.
+         */
+        private int minSamples = 50;
+        private Duration initialDelay = Duration.ofMillis(100);
+        private Duration minDelay = Duration.ofMillis(10);
+        private Duration maxDelay = Duration.ofSeconds(1);
+
+        /**
+         * Maximum hedges as a fraction of reads, e.g. 0.1 adds at most 10% extra read load.
+         */
+        private double budget = 0.1;
+    }
+
+    /**
+     * gRPC channel settings used by {@link QdrantChannelFactory}.
+     */
+    @Data
+    public static class Channel {
+        /**
+         * Number of channels (HTTP/2 connections) that read calls are spread over round-robin.
+         * Writes and collection management always use the first channel.
+         */
+        private int poolSize = 1;
+
+        /**
+         * Deadline for calls that do not set their own, and overrides by method name (e.g. CreateCollection).
+         */
+        private Duration defaultDeadline = Duration.ofSeconds(30);
+        private Map<String, Duration> methodDeadlines = new LinkedHashMap<>();
+
+        private Duration keepAliveTime = Duration.ofSeconds(30);
+        private Duration keepAliveTimeout = Duration.ofSeconds(10);
+        private boolean keepAliveWithoutCalls = false;
+        private Duration idleTimeout = Duration.ofMinutes(5);
+        private int maxInboundMessageSize = 16 * 1024 * 1024;
+
+        /**
+         * GZIP compresses upsert requests of at least {@code compressionMinBytes}; smaller ones are sent as is.
+         */
+        private Compression compression = Compression.NONE;
+        private int compressionMinBytes = 64 * 1024;
+
+        /**
+         * Netty event loop and callback executor threads; zero uses gRPC's shared defaults.
+         */
+        private int eventLoopThreads = 0;
+        private int executorThreads = 0;
+    }
+
+    public enum Compression {
+        NONE,
+        GZIP
+    }
 }
\ No newline at end of file
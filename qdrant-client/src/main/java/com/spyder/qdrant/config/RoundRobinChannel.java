@@ -0,0 +1,111 @@
+package com.spyder.qdrant.config;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ConnectivityState;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads point reads over a pool of channels so concurrent searches do not queue behind each
+ * other on one HTTP/2 connection. Everything else goes to the first channel, which keeps writes
+ * and collection changes on a single connection.
+ */
+class RoundRobinChannel extends ManagedChannel {
+
+    private static final String POINTS_SERVICE = "qdrant.Points";
+    private static final Set<String> READ_METHODS = Set.of(
+        "Search", "SearchBatch", "SearchGroups", "Scroll", "Get", "Count",
+        "Recommend", "RecommendBatch", "RecommendGroups", "Discover", "DiscoverBatch",
+        "Query", "QueryBatch", "QueryGroups");
+
+    private final List<ManagedChannel> channels;
+    private final ChannelMetrics metrics;
+    private final AtomicInteger next = new AtomicInteger();
+
+    RoundRobinChannel(List<ManagedChannel> channels, ChannelMetrics metrics) {
+        this.channels = List.copyOf(channels);
+        this.metrics = metrics;
+    }
+
+    static boolean isRead(MethodDescriptor<?, ?> method) {
+        return POINTS_SERVICE.equals(method.getServiceName()) && READ_METHODS.contains(method.getBareMethodName());
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions) {
+        int index = channels.size() > 1 && isRead(method)
+            ? Math.floorMod(next.getAndIncrement(), channels.size())
+            : 0;
+        metrics.recordChannel(index);
+        return channels.get(index).newCall(method, callOptions);
+    }
+
+    @Override
+    public String authority() {
+        return channels.get(0).authority();
+    }
+
+    @Override
+    public ManagedChannel shutdown() {
+        channels.forEach(ManagedChannel::shutdown);
+        return this;
+    }
+
+    @Override
+    public ManagedChannel shutdownNow() {
+        channels.forEach(ManagedChannel::shutdownNow);
+        return this;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return channels.stream().allMatch(ManagedChannel::isShutdown);
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return channels.stream().allMatch(ManagedChannel::isTerminated);
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ManagedChannel channel : channels) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !channel.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * READY while any pooled connection is ready, otherwise the state of the first channel.
+     */
+    @Override
+    public ConnectivityState getState(boolean requestConnection) {
+        ConnectivityState first = channels.get(0).getState(requestConnection);
+        for (ManagedChannel channel : channels.subList(1, channels.size())) {
+            if (channel.getState(requestConnection) == ConnectivityState.READY) {
+                return ConnectivityState.READY;
+            }
+        }
+        return first;
+    }
+
+    @Override
+    public void resetConnectBackoff() {
+        channels.forEach(ManagedChannel::resetConnectBackoff);
+    }
+
+    @Override
+    public void enterIdle() {
+        channels.forEach(ManagedChannel::enterIdle);
+    }
+}
@@ -0,0 +1,27 @@
+package com.spyder.qdrant.config;
+
+import com.spyder.qdrant.service.EmbeddedVectorStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * With {@code vector-store.type: EMBEDDED} the embedded store takes precedence over {@code QdrantService}
+ * wherever a {@code VectorStore} is injected. Qdrant-only features (reindex, benchmarks) keep using Qdrant.
+ */
+@Configuration
+public class VectorStoreConfig {
+
+    @Bean(destroyMethod = "close")
+    @Primary
+    @ConditionalOnProperty(prefix = "vector-store", name = "type", havingValue = "embedded")
+    public EmbeddedVectorStore embeddedVectorStore(VectorStoreProperties properties,
+                                                   EmbeddingProperties embeddingProperties) throws IOException {
+        return EmbeddedVectorStore.open(Path.of(properties.getEmbedded().getDirectory()),
+            embeddingProperties.getDimensions(), properties.getEmbedded());
+    }
+}
@@ -0,0 +1,62 @@
+package com.spyder.qdrant.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "vector-store")
+public class VectorStoreProperties {
+    /**
+     * QDRANT uses the Qdrant server, EMBEDDED keeps an HNSW index in process under {@code embedded.directory}.
+     */
+    private Type type = Type.QDRANT;
+    private Embedded embedded = new Embedded();
+
+    public enum Type {
+        QDRANT,
+        EMBEDDED
+    }
+
+    @Data
+    public static class Embedded {
+        private String directory = "vector-store";
+
+        /**
+         * HNSW links per node (twice as many on the bottom layer) and candidate list sizes for building and searching.
+         */
+        private int m = 16;
+        private int efConstruction = 200;
+        private int efSearch = 64;
+
+        /**
+         * Filtered searches matching at most this many points scan them exactly instead of walking the graph.
+         */
+        private int exactSearchThreshold = 2000;
+
+        /**
+         * Rewrite the files without deleted and overwritten points once they make up this share of all slots.
+         */
+        private double compactionRatio = 0.25;
+
+        /**
+         * Journal entries after which the index file is rewritten and a new journal started.
+         */
+        private int checkpointInterval = 10000;
+
+        /**
+         * How often to pick up changes that other processes wrote to the directory; zero turns it off.
+         */
+        private Duration refreshInterval = Duration.ofSeconds(1);
+
+        /**
+         * Threads that run searches and writes, 0 for one per processor, and how many operations may wait
+         * for them before new ones are rejected.
+         */
+        private int threads = 0;
+        private int queueCapacity = 1024;
+    }
+}
@@ -1,9 +1,14 @@
 package com.spyder.qdrant.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.UUID;
 
 @Data
@@ -18,10 +23,41 @@ public class DocumentChunk {
     @JsonProperty("metadata")
     private Metadata metadata;
     
+    /**
+     * Model input produced while chunking on a token budget, reused by the embedder so the
+     * content is not tokenized twice. Null when chunks were cut on characters.
+     */
+    @JsonIgnore
+    private TokenizedText tokens;
+    
     public DocumentChunk(String content, String source, int pageNumber, String chapter, String heading, String subheading, int chunkIndex) {
-        this.id = UUID.randomUUID().toString();
         this.content = content;
         this.metadata = new Metadata(source, pageNumber, chapter, heading, subheading, chunkIndex, content.length());
+        this.id = deterministicId(source, pageNumber, chunkIndex, contentHash(content, chapter, heading, subheading));
+    }
+    
+    /**
+     * Name-based UUID for a chunk, stable across ingest runs as long as the chunk is unchanged.
+     */
+    public static String deterministicId(String source, int pageNumber, int chunkIndex, String contentHash) {
+        String name = source + "|" + pageNumber + "|" + chunkIndex + "|" + contentHash;
+        return UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+    
+    /**
+     * SHA-256 over the content and its outline position, so a changed heading also yields a new ID.
+     */
+    private static String contentHash(String content, String chapter, String heading, String subheading) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[]{chapter, heading, subheading, content}) {
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
     
     @Data
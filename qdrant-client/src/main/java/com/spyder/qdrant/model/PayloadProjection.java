@@ -0,0 +1,55 @@
+package com.spyder.qdrant.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Which payload fields a search returns and how the chunk content is shaped.
+ * {@code include} and {@code exclude} are sent to Qdrant, so dropped fields never leave the server;
+ * when both are set, {@code include} wins.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayloadProjection {
+    
+    public static final int DEFAULT_CONTENT_LENGTH = 300;
+    
+    @JsonProperty("include")
+    private List<String> include;
+    
+    @JsonProperty("exclude")
+    private List<String> exclude;
+    
+    @JsonProperty("content")
+    private ContentMode content = ContentMode.FULL;
+    
+    @JsonProperty("content_length")
+    private Integer contentLength;
+    
+    public int resolveContentLength() {
+        return contentLength != null && contentLength > 0 ? contentLength : DEFAULT_CONTENT_LENGTH;
+    }
+    
+    public enum ContentMode {
+        /** Content as stored. */
+        FULL,
+        /** The first {@code content_length} characters. */
+        TRUNCATE,
+        /** About {@code content_length} characters around the span that best matches the query. */
+        SNIPPET,
+        /** No content; the field is not fetched from Qdrant at all. */
+        NONE;
+        
+        @JsonCreator
+        public static ContentMode fromValue(String value) {
+            return value == null || value.isBlank() ? FULL : valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+}
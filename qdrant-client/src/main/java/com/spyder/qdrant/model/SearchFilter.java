@@ -0,0 +1,48 @@
+package com.spyder.qdrant.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Metadata conditions applied to a search. Every field is optional; set fields must all match.
+ * Text fields use full-text matching, so "combat" matches a heading "Combat Rules";
+ * {@code source} must match exactly and the page range bounds are inclusive.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchFilter {
+    @JsonProperty("chapter")
+    private String chapter;
+    
+    @JsonProperty("heading")
+    private String heading;
+    
+    @JsonProperty("subheading")
+    private String subheading;
+    
+    @JsonProperty("page_number")
+    private Integer pageNumber;
+    
+    @JsonProperty("page_from")
+    private Integer pageFrom;
+    
+    @JsonProperty("page_to")
+    private Integer pageTo;
+    
+    @JsonProperty("source")
+    private String source;
+    
+    @JsonIgnore
+    public boolean isEmpty() {
+        return isBlank(chapter) && isBlank(heading) && isBlank(subheading) && pageNumber == null
+            && pageFrom == null && pageTo == null && isBlank(source);
+    }
+    
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -0,0 +1,61 @@
+package com.spyder.qdrant.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Per-request trade-off between recall and latency of a vector search. Unset fields fall back to
+ * {@code qdrant.search}; {@code --evaluate-recall} in pdf-processing measures what each setting costs.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchParameters {
+
+    /** Candidates kept while walking the HNSW graph; higher finds more true neighbours but is slower. */
+    @JsonProperty("hnsw_ef")
+    private Integer hnswEf;
+
+    /** Skip the index and score every matching point. */
+    @JsonProperty("exact")
+    private Boolean exact;
+
+    /** Drop results whose cosine similarity is below this value. */
+    @JsonProperty("score_threshold")
+    private Float scoreThreshold;
+
+    /** Quantized collections only: fetch this many times the limit before rescoring. */
+    @JsonProperty("oversampling")
+    private Double oversampling;
+
+    /** Quantized collections only: re-rank candidates with the original vectors. */
+    @JsonProperty("rescore")
+    private Boolean rescore;
+
+    public SearchParameters(Integer hnswEf, Boolean exact, Float scoreThreshold) {
+        this(hnswEf, exact, scoreThreshold, null, null);
+    }
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return hnswEf == null && exact == null && scoreThreshold == null && oversampling == null && rescore == null;
+    }
+
+    /**
+     * Reject values Qdrant would refuse or silently misread.
+     */
+    public void validate() {
+        if (hnswEf != null && hnswEf <= 0) {
+            throw new IllegalArgumentException("hnsw_ef must be positive, got " + hnswEf);
+        }
+        if (scoreThreshold != null && (scoreThreshold < -1 || scoreThreshold > 1)) {
+            throw new IllegalArgumentException("score_threshold must be between -1 and 1, got " + scoreThreshold);
+        }
+        if (oversampling != null && oversampling < 1) {
+            throw new IllegalArgumentException("oversampling must be at least 1, got " + oversampling);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.spyder.qdrant.model;
+
+/**
+ * Token ids and attention mask for one piece of text, ready to be packed into an inference batch.
+ */
+public record TokenizedText(long[] inputIds, long[] attentionMask) {
+
+    public int length() {
+        return inputIds.length;
+    }
+}
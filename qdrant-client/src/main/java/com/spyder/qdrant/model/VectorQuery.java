@@ -0,0 +1,7 @@
+package com.spyder.qdrant.model;
+
+/**
+ * One entry of a batch vector search: the query vector, how many hits to return and an optional filter.
+ */
+public record VectorQuery(float[] vector, int limit, SearchFilter filter) {
+}
@@ -0,0 +1,216 @@
+package com.spyder.qdrant.service;
+
+import com.spyder.qdrant.config.QdrantProperties;
+import com.spyder.qdrant.config.QdrantProperties.Quantization;
+import com.spyder.qdrant.config.QdrantProperties.Storage;
+import io.qdrant.client.grpc.Collections.BinaryQuantization;
+import io.qdrant.client.grpc.Collections.CollectionConfig;
+import io.qdrant.client.grpc.Collections.CollectionParamsDiff;
+import io.qdrant.client.grpc.Collections.CreateCollection;
+import io.qdrant.client.grpc.Collections.Disabled;
+import io.qdrant.client.grpc.Collections.HnswConfigDiff;
+import io.qdrant.client.grpc.Collections.OptimizersConfigDiff;
+import io.qdrant.client.grpc.Collections.QuantizationConfig;
+import io.qdrant.client.grpc.Collections.QuantizationConfigDiff;
+import io.qdrant.client.grpc.Collections.QuantizationType;
+import io.qdrant.client.grpc.Collections.ScalarQuantization;
+import io.qdrant.client.grpc.Collections.UpdateCollection;
+import io.qdrant.client.grpc.Collections.VectorParams;
+import io.qdrant.client.grpc.Collections.VectorParamsDiff;
+import io.qdrant.client.grpc.Collections.VectorsConfigDiff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Turns a {@link QdrantProperties.Storage} profile into collection create/update requests
+ * and compares it with the config of an existing collection.
+ */
+final class CollectionProfiles {
+
+    private static final float SCALAR_QUANTILE = 0.99f;
+
+    private CollectionProfiles() {
+    }
+
+    /**
+     * Settings in effect for the configured profile: presets replace the individual fields,
+     * CUSTOM takes them as configured and DEFAULT leaves everything to Qdrant.
+     */
+    static Storage resolve(Storage configured) {
+        Storage storage = new Storage();
+        storage.setProfile(configured.getProfile());
+        storage.setUpdateExisting(configured.isUpdateExisting());
+        switch (configured.getProfile()) {
+            case LOW_LATENCY -> {
+                storage.setQuantization(Quantization.SCALAR);
+                storage.setQuantizedAlwaysRam(true);
+                storage.setHnswM(32);
+                storage.setHnswEfConstruct(256);
+            }
+            case LOW_MEMORY -> {
+                storage.setQuantization(Quantization.SCALAR);
+                storage.setQuantizedAlwaysRam(true);
+                storage.setOnDiskVectors(true);
+                storage.setOnDiskPayload(true);
+                storage.setHnswM(16);
+                storage.setHnswEfConstruct(100);
+            }
+            case CUSTOM -> {
+                storage.setQuantization(configured.getQuantization());
+                storage.setQuantizedAlwaysRam(configured.isQuantizedAlwaysRam());
+                storage.setOnDiskVectors(configured.isOnDiskVectors());
+                storage.setOnDiskPayload(configured.isOnDiskPayload());
+                storage.setHnswM(configured.getHnswM());
+                storage.setHnswEfConstruct(configured.getHnswEfConstruct());
+                storage.setIndexingThresholdKb(configured.getIndexingThresholdKb());
+                storage.setMemmapThresholdKb(configured.getMemmapThresholdKb());
+            }
+            case DEFAULT -> {
+            }
+        }
+        return storage;
+    }
+
+    /**
+     * Whether an existing collection has quantization enabled, collection-wide or on its vector params.
+     */
+    static boolean isQuantized(CollectionConfig config) {
+        return config.getQuantizationConfig().getQuantizationCase() != QuantizationConfig.QuantizationCase.QUANTIZATION_NOT_SET
+            || config.getParams().getVectorsConfig().getParams().getQuantizationConfig().getQuantizationCase()
+                != QuantizationConfig.QuantizationCase.QUANTIZATION_NOT_SET;
+    }
+
+    static void applyToCreate(Storage storage, CreateCollection.Builder create, VectorParams.Builder vectorParams) {
+        if (storage.isOnDiskVectors()) {
+            vectorParams.setOnDisk(true);
+        }
+        if (storage.isOnDiskPayload()) {
+            create.setOnDiskPayload(true);
+        }
+        HnswConfigDiff hnsw = hnswConfig(storage);
+        if (hnsw != null) {
+            create.setHnswConfig(hnsw);
+        }
+        OptimizersConfigDiff optimizers = optimizersConfig(storage);
+        if (optimizers != null) {
+            create.setOptimizersConfig(optimizers);
+        }
+        switch (storage.getQuantization()) {
+            case SCALAR -> create.setQuantizationConfig(QuantizationConfig.newBuilder().setScalar(scalar(storage)).build());
+            case BINARY -> create.setQuantizationConfig(QuantizationConfig.newBuilder().setBinary(binary(storage)).build());
+            case NONE -> {
+            }
+        }
+    }
+
+    /**
+     * Human-readable differences between the profile and an existing collection. Unset HNSW and
+     * optimizer values are not compared, since they mean "whatever Qdrant chose".
+     */
+    static List<String> differences(Storage storage, CollectionConfig config) {
+        List<String> differences = new ArrayList<>();
+        Quantization actualQuantization = config.getQuantizationConfig().hasScalar() ? Quantization.SCALAR
+            : config.getQuantizationConfig().hasBinary() ? Quantization.BINARY
+            : Quantization.NONE;
+        compare(differences, "quantization", storage.getQuantization(), actualQuantization);
+        if (storage.getQuantization() != Quantization.NONE && actualQuantization == storage.getQuantization()) {
+            boolean alwaysRam = actualQuantization == Quantization.SCALAR
+                ? config.getQuantizationConfig().getScalar().getAlwaysRam()
+                : config.getQuantizationConfig().getBinary().getAlwaysRam();
+            compare(differences, "quantized-always-ram", storage.isQuantizedAlwaysRam(), alwaysRam);
+        }
+        compare(differences, "on-disk-vectors", storage.isOnDiskVectors(),
+            config.getParams().getVectorsConfig().getParams().getOnDisk());
+        compare(differences, "on-disk-payload", storage.isOnDiskPayload(), config.getParams().getOnDiskPayload());
+        if (storage.getHnswM() != null) {
+            compare(differences, "hnsw-m", storage.getHnswM().longValue(), config.getHnswConfig().getM());
+        }
+        if (storage.getHnswEfConstruct() != null) {
+            compare(differences, "hnsw-ef-construct", storage.getHnswEfConstruct().longValue(),
+                config.getHnswConfig().getEfConstruct());
+        }
+        if (storage.getIndexingThresholdKb() != null) {
+            compare(differences, "indexing-threshold-kb", storage.getIndexingThresholdKb().longValue(),
+                config.getOptimizerConfig().getIndexingThreshold());
+        }
+        if (storage.getMemmapThresholdKb() != null) {
+            compare(differences, "memmap-threshold-kb", storage.getMemmapThresholdKb().longValue(),
+                config.getOptimizerConfig().getMemmapThreshold());
+        }
+        return differences;
+    }
+
+    static UpdateCollection toUpdate(Storage storage, String collection) {
+        UpdateCollection.Builder update = UpdateCollection.newBuilder()
+            .setCollectionName(collection)
+            .setParams(CollectionParamsDiff.newBuilder().setOnDiskPayload(storage.isOnDiskPayload()).build())
+            .setVectorsConfig(VectorsConfigDiff.newBuilder()
+                .setParams(VectorParamsDiff.newBuilder().setOnDisk(storage.isOnDiskVectors()).build())
+                .build());
+        HnswConfigDiff hnsw = hnswConfig(storage);
+        if (hnsw != null) {
+            update.setHnswConfig(hnsw);
+        }
+        OptimizersConfigDiff optimizers = optimizersConfig(storage);
+        if (optimizers != null) {
+            update.setOptimizersConfig(optimizers);
+        }
+        QuantizationConfigDiff.Builder quantization = QuantizationConfigDiff.newBuilder();
+        switch (storage.getQuantization()) {
+            case SCALAR -> quantization.setScalar(scalar(storage));
+            case BINARY -> quantization.setBinary(binary(storage));
+            case NONE -> quantization.setDisabled(Disabled.getDefaultInstance());
+        }
+        return update.setQuantizationConfig(quantization.build()).build();
+    }
+
+    private static HnswConfigDiff hnswConfig(Storage storage) {
+        if (storage.getHnswM() == null && storage.getHnswEfConstruct() == null) {
+            return null;
+        }
+        HnswConfigDiff.Builder hnsw = HnswConfigDiff.newBuilder();
+        if (storage.getHnswM() != null) {
+            hnsw.setM(storage.getHnswM());
+        }
+        if (storage.getHnswEfConstruct() != null) {
+            hnsw.setEfConstruct(storage.getHnswEfConstruct());
+        }
+        return hnsw.build();
+    }
+
+    private static OptimizersConfigDiff optimizersConfig(Storage storage) {
+        if (storage.getIndexingThresholdKb() == null && storage.getMemmapThresholdKb() == null) {
+            return null;
+        }
+        OptimizersConfigDiff.Builder optimizers = OptimizersConfigDiff.newBuilder();
+        if (storage.getIndexingThresholdKb() != null) {
+            optimizers.setIndexingThreshold(storage.getIndexingThresholdKb());
+        }
+        if (storage.getMemmapThresholdKb() != null) {
+            optimizers.setMemmapThreshold(storage.getMemmapThresholdKb());
+        }
+        return optimizers.build();
+    }
+
+    private static ScalarQuantization scalar(Storage storage) {
+        return ScalarQuantization.newBuilder()
+            .setType(QuantizationType.Int8)
+            .setQuantile(SCALAR_QUANTILE)
+            .setAlwaysRam(storage.isQuantizedAlwaysRam())
+            .build();
+    }
+
+    private static BinaryQuantization binary(Storage storage) {
+        return BinaryQuantization.newBuilder()
+            .setAlwaysRam(storage.isQuantizedAlwaysRam())
+            .build();
+    }
+
+    private static void compare(List<String> differences, String setting, Object expected, Object actual) {
+        if (!Objects.equals(expected, actual)) {
+            differences.add(setting + ": profile " + expected + ", collection " + actual);
+        }
+    }
+}
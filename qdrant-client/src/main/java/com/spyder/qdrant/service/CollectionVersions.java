@@ -0,0 +1,178 @@
+package com.spyder.qdrant.service;
+
+import com.spyder.qdrant.config.EmbeddingProperties;
+import com.spyder.qdrant.config.QdrantProperties;
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.grpc.Collections.AliasDescription;
+import io.qdrant.client.grpc.Collections.AliasOperations;
+import io.qdrant.client.grpc.Collections.CollectionInfo;
+import io.qdrant.client.grpc.Collections.CollectionStatus;
+import io.qdrant.client.grpc.Collections.CreateAlias;
+import io.qdrant.client.grpc.Collections.DeleteAlias;
+import io.qdrant.client.grpc.Collections.OptimizersConfigDiff;
+import io.qdrant.client.grpc.Collections.UpdateCollection;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Versioned collections behind the {@code qdrant.collection} alias.
+ * A rebuild loads a new version with HNSW indexing deferred, builds the index once the load is done,
+ * swaps the alias to it in one atomic alias update and deletes versions past {@code qdrant.reindex.retain-versions}.
+ * Searches keep going through the alias and see either the old or the new version, never a partial one.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CollectionVersions {
+
+    private static final DateTimeFormatter VERSION_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    private final QdrantClient client;
+    private final QdrantProperties properties;
+    private final HedgedReads hedgedReads;
+
+    /**
+     * Create the next version with indexing disabled (indexing threshold 0) and return its name.
+     * The version is not visible to searches until {@link #promote}.
+     */
+    public String createVersion(EmbeddingProperties embeddingProperties) {
+        String version = properties.getCollection() + "-v" + VERSION_FORMAT.format(LocalDateTime.now(ZoneOffset.UTC));
+        forVersion(version).createCollection(embeddingProperties.getDimensions(), 0);
+        log.info("Created collection '{}' for a full rebuild of '{}', HNSW indexing deferred", version, properties.getCollection());
+        return version;
+    }
+
+    /**
+     * Create the payload indexes, re-enable HNSW indexing and wait until the optimizers have finished,
+     * so the version serves indexed searches from the moment it goes live.
+     */
+    public void finishLoad(String version) throws ExecutionException, InterruptedException, TimeoutException {
+        forVersion(version).ensurePayloadIndexes();
+        Integer profileThreshold = CollectionProfiles.resolve(properties.getStorage()).getIndexingThresholdKb();
+        int indexingThresholdKb = profileThreshold != null ? profileThreshold : properties.getReindex().getIndexingThresholdKb();
+        client.updateCollectionAsync(UpdateCollection.newBuilder()
+            .setCollectionName(version)
+            .setOptimizersConfig(OptimizersConfigDiff.newBuilder().setIndexingThreshold(indexingThresholdKb).build())
+            .build()).get();
+        log.info("Enabled indexing of '{}' (threshold {} KB), waiting for optimization", version, indexingThresholdKb);
+
+        long start = System.nanoTime();
+        long deadline = start + properties.getReindex().getOptimizationTimeout().toNanos();
+        // The optimizers may not have picked up the update on the first poll, so require green twice in a row
+        int greenPolls = 0;
+        while (greenPolls < 2) {
+            if (System.nanoTime() > deadline) {
+                throw new TimeoutException("Collection '" + version + "' was not optimized within "
+                    + properties.getReindex().getOptimizationTimeout());
+            }
+            Thread.sleep(properties.getReindex().getPollInterval().toMillis());
+            CollectionInfo info = client.getCollectionInfoAsync(version).get();
+            if (info.getStatus() == CollectionStatus.Red || !info.getOptimizerStatus().getOk()) {
+                throw new IllegalStateException("Optimizing collection '" + version + "' failed: "
+                    + info.getOptimizerStatus().getError());
+            }
+            greenPolls = info.getStatus() == CollectionStatus.Green ? greenPolls + 1 : 0;
+        }
+        CollectionInfo info = client.getCollectionInfoAsync(version).get();
+        log.info("Collection '{}' optimized in {} ms: {} points, {} indexed vectors, {} segments", version,
+            (System.nanoTime() - start) / 1_000_000, info.getPointsCount(), info.getIndexedVectorsCount(), info.getSegmentsCount());
+    }
+
+    /**
+     * Point the alias at the given version. Deleting the old alias and creating the new one go in one
+     * alias update, which Qdrant applies atomically. A plain collection that still carries the alias name
+     * (from before versioning) has to be deleted first, which leaves a short gap for searches.
+     */
+    public void promote(String version) throws ExecutionException, InterruptedException {
+        String alias = properties.getCollection();
+        String previous = currentVersion();
+        List<AliasOperations> operations = new ArrayList<>(2);
+        if (previous != null) {
+            operations.add(AliasOperations.newBuilder()
+                .setDeleteAlias(DeleteAlias.newBuilder().setAliasName(alias).build())
+                .build());
+        } else if (client.listCollectionsAsync().get().contains(alias)) {
+            log.warn("Deleting unversioned collection '{}' so its name can become an alias", alias);
+            client.deleteCollectionAsync(alias).get();
+        }
+        operations.add(AliasOperations.newBuilder()
+            .setCreateAlias(CreateAlias.newBuilder().setAliasName(alias).setCollectionName(version).build())
+            .build());
+        client.updateAliasesAsync(operations).get();
+        log.info("Alias '{}' now points at '{}' (was {})", alias, version, previous == null ? "unset" : "'" + previous + "'");
+    }
+
+    /**
+     * Delete versions older than the live one past {@code qdrant.reindex.retain-versions}. Versions
+     * newer than the live one (a rebuild in progress) and anything another alias points at are kept.
+     */
+    public void deleteOldVersions() throws ExecutionException, InterruptedException {
+        String live = currentVersion();
+        if (live == null) {
+            return;
+        }
+        Set<String> aliased = client.listAliasesAsync().get().stream()
+            .map(AliasDescription::getCollectionName)
+            .collect(Collectors.toSet());
+        Pattern versionPattern = Pattern.compile(Pattern.quote(properties.getCollection()) + "-v\\d{8}T\\d{6}");
+        List<String> older = client.listCollectionsAsync().get().stream()
+            .filter(name -> versionPattern.matcher(name).matches())
+            .filter(name -> name.compareTo(live) < 0 && !aliased.contains(name))
+            .sorted(Comparator.reverseOrder())
+            .toList();
+        int retain = Math.max(0, properties.getReindex().getRetainVersions());
+        for (String version : older.subList(Math.min(retain, older.size()), older.size())) {
+            client.deleteCollectionAsync(version).get();
+            log.info("Deleted old collection version '{}'", version);
+        }
+    }
+
+    /**
+     * Drop a version that never went live, e.g. after a failed rebuild.
+     */
+    public void discard(String version) {
+        try {
+            if (!version.equals(currentVersion())) {
+                client.deleteCollectionAsync(version).get();
+                log.info("Discarded collection version '{}'", version);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to discard collection version '{}': {}", version, e.getMessage());
+        }
+    }
+
+    /**
+     * Collection the alias currently points at, or null while the alias does not exist.
+     */
+    public String currentVersion() throws ExecutionException, InterruptedException {
+        return client.listAliasesAsync().get().stream()
+            .filter(alias -> alias.getAliasName().equals(properties.getCollection()))
+            .map(AliasDescription::getCollectionName)
+            .findFirst()
+            .orElse(null);
+    }
+
+    /**
+     * Service that reads and writes one version directly instead of through the alias.
+     */
+    public QdrantService forVersion(String collection) {
+        QdrantProperties versionProperties = new QdrantProperties();
+        BeanUtils.copyProperties(properties, versionProperties);
+        versionProperties.setCollection(collection);
+        return new QdrantService(client, versionProperties, hedgedReads);
+    }
+}
@@ -0,0 +1,1010 @@
+package com.spyder.qdrant.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spyder.qdrant.config.EmbeddingProperties;
+import com.spyder.qdrant.config.VectorStoreProperties;
+import com.spyder.qdrant.model.PayloadProjection;
+import com.spyder.qdrant.model.SearchFilter;
+import com.spyder.qdrant.model.SearchParameters;
+import com.spyder.qdrant.model.VectorQuery;
+import io.qdrant.client.grpc.JsonWithInt;
+import io.qdrant.client.grpc.Points;
+import io.qdrant.client.grpc.Points.PointStruct;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * In-process vector store for deployments small enough not to need a Qdrant server.
+ * Vectors are L2-normalized and appended to a memory-mapped float32 file ({@link MappedVectors}) that an
+ * {@link HnswGraph} indexes. Point IDs and payloads of every change are appended to a journal; after
+ * {@code checkpoint-interval} entries, and after a compaction, the graph, IDs and payloads are written to an
+ * index file and a new journal is started. At startup the vector file is mapped, the index file read and the
+ * journal replayed.
+ * <p>
+ * Several processes may share the directory, such as the ingest CLI and the MCP server. Writers take an
+ * exclusive lock on {@code write.lock} and apply what others appended before appending themselves; every
+ * store picks up the others' changes each {@code refresh-interval}. A vector file is share-locked while
+ * mapped, and a writer deletes the ones a compaction replaced only while holding the writer lock and once no
+ * other process holds theirs.
+ * <p>
+ * Filters and projections behave like {@link QdrantService}'s. Operations run on the store's own bounded
+ * pool of daemon threads, so callers such as the embedding batcher or a Netty event loop never walk the graph
+ * themselves; when the queue is full the returned future fails with {@link RejectedExecutionException}.
+ * Searches run concurrently, writes are serialized.
+ */
+@Slf4j
+public class EmbeddedVectorStore implements VectorStore, AutoCloseable {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final String INDEX_FILE = "index.bin";
+    private static final String WRITE_LOCK_FILE = "write.lock";
+    private static final Pattern VECTOR_FILE = Pattern.compile("vectors-(\\d+)\\.f32");
+    private static final Pattern JOURNAL_FILE = Pattern.compile("journal-(\\d+)\\.log");
+    private static final int FRAME_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final byte UPSERT = 1;
+    private static final byte DELETE = 2;
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> PAYLOAD_TYPE = new TypeReference<>() {
+    };
+
+    /**
+     * Writer locks of this process by directory: file locks are held per process, not per store.
+     */
+    private static final Map<Path, ReentrantLock> PROCESS_WRITERS = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    private final int dimensions;
+    private final VectorStoreProperties.Embedded config;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadPoolExecutor executor;
+    private final ReentrantLock processWriters;
+    private final FileChannel writeLock;
+    private ScheduledExecutorService refresher;
+
+    /**
+     * Point per vector slot; null for slots whose point was deleted or overwritten.
+     */
+    private final List<StoredPoint> points = new ArrayList<>();
+    private final Map<String, Integer> slots = new HashMap<>();
+    private int deletedSlots;
+    private int generation;
+    private MappedVectors vectors;
+    private FileLock generationLock;
+    private HnswGraph graph;
+
+    /**
+     * Number of the last checkpoint, which names the journal appended since, and how much of it is applied.
+     */
+    private volatile int epoch;
+    private volatile long journalOffset;
+    private int journalEntries;
+
+    private EmbeddedVectorStore(Path directory, int dimensions, VectorStoreProperties.Embedded config) throws IOException {
+        this.directory = directory;
+        this.dimensions = dimensions;
+        this.config = config;
+        this.executor = executor(config);
+        this.processWriters = PROCESS_WRITERS.computeIfAbsent(directory.toAbsolutePath().normalize(), key -> new ReentrantLock());
+        this.writeLock = FileChannel.open(directory.resolve(WRITE_LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    private static ThreadPoolExecutor executor(VectorStoreProperties.Embedded config) {
+        int threads = config.getThreads() > 0 ? config.getThreads() : Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity())), task -> {
+                Thread thread = new Thread(task, "embedded-vector-store-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * Open the store in the given directory, creating it when it does not exist yet.
+     */
+    public static EmbeddedVectorStore open(Path directory, int dimensions, VectorStoreProperties.Embedded config) throws IOException {
+        Files.createDirectories(directory);
+        EmbeddedVectorStore store = new EmbeddedVectorStore(directory, dimensions, config);
+        store.load();
+        store.deleteStaleFilesUnlessWriting();
+        store.scheduleRefresh();
+        return store;
+    }
+
+    /**
+     * Read the index file, if there is one, and replay the journal written since. The vector file is
+     * share-locked before it is mapped; when a writer replaced and deleted it first, the newer index is read.
+     */
+    private void load() throws IOException {
+        long start = System.nanoTime();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                loadCheckpoint();
+                break;
+            } catch (NoSuchFileException e) {
+                if (attempt == 3) {
+                    throw e;
+                }
+                log.debug("Vector file {} was replaced while loading, reading the index again", e.getFile());
+            }
+        }
+        int replayed = replayJournal();
+        log.info("Loaded embedded vector store from '{}' in {} ms: {} points, {} deleted slots, {} journal entries replayed",
+            directory, (System.nanoTime() - start) / 1_000_000, slots.size(), deletedSlots, replayed);
+    }
+
+    private void loadCheckpoint() throws IOException {
+        points.clear();
+        slots.clear();
+        deletedSlots = 0;
+        journalOffset = 0;
+        journalEntries = 0;
+        Path index = directory.resolve(INDEX_FILE);
+        if (!Files.exists(index)) {
+            generation = 0;
+            epoch = 0;
+            mapVectors(true);
+            graph = new HnswGraph(vectors, config.getM(), config.getEfConstruction());
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(index)))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported embedded vector store format " + version + " in " + index);
+            }
+            int storedDimensions = in.readInt();
+            if (storedDimensions != dimensions) {
+                throw new IllegalStateException("Embedded vector store in '" + directory + "' holds " + storedDimensions
+                    + "-dimensional vectors, but embedding.dimensions is " + dimensions);
+            }
+            generation = in.readInt();
+            epoch = in.readInt();
+            int m = in.readInt();
+            int count = in.readInt();
+            for (int slot = 0; slot < count; slot++) {
+                if (!in.readBoolean()) {
+                    points.add(null);
+                    deletedSlots++;
+                    continue;
+                }
+                String id = in.readUTF();
+                byte[] payload = in.readNBytes(in.readInt());
+                points.add(new StoredPoint(id, JSON.readValue(payload, PAYLOAD_TYPE)));
+                slots.put(id, slot);
+            }
+            mapVectors(false);
+            graph = new HnswGraph(vectors, m, config.getEfConstruction());
+            graph.read(in);
+        }
+    }
+
+    private void mapVectors(boolean create) throws IOException {
+        Path file = vectorFile(generation);
+        generationLock = shareLock(file, create);
+        vectors = MappedVectors.open(file, dimensions);
+    }
+
+    /**
+     * Share-lock a vector file so no writer deletes it while it is mapped. Returns null when another store
+     * of this process holds the lock already.
+     */
+    private static FileLock shareLock(Path file, boolean create) throws IOException {
+        FileChannel channel = create
+            ? FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+            : FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            FileLock shared = channel.lock(0, Long.MAX_VALUE, true);
+            if (!Files.exists(file)) {
+                throw new NoSuchFileException(file.toString());
+            }
+            return shared;
+        } catch (OverlappingFileLockException e) {
+            channel.close();
+            return null;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void releaseGenerationLock() throws IOException {
+        if (generationLock != null) {
+            generationLock.channel().close();
+            generationLock = null;
+        }
+    }
+
+    private void scheduleRefresh() {
+        Duration interval = config.getRefreshInterval();
+        if (interval == null || interval.isZero() || interval.isNegative()) {
+            return;
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "embedded-vector-store-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (IOException | RuntimeException e) {
+                log.warn("Refreshing embedded vector store in '{}' failed: {}", directory, e.getMessage());
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Pick up changes other processes wrote to the directory. Only the index header and the journal size
+     * are read when there are none.
+     */
+    void refresh() throws IOException {
+        if (checkpointEpoch() == epoch && journalSize() <= journalOffset) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            catchUp();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reload after another process wrote a checkpoint, otherwise apply the journal entries it appended.
+     */
+    private void catchUp() throws IOException {
+        if (checkpointEpoch() != epoch) {
+            vectors.close();
+            releaseGenerationLock();
+            load();
+        } else {
+            int applied = replayJournal();
+            if (applied > 0) {
+                log.debug("Applied {} journal entries from '{}'", applied, directory);
+            }
+        }
+    }
+
+    private int checkpointEpoch() throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(directory.resolve(INDEX_FILE)))) {
+            // Skip the format version, dimensions and generation
+            in.skipNBytes(3 * Integer.BYTES);
+            return in.readInt();
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    private long journalSize() throws IOException {
+        try {
+            return Files.size(journalFile(epoch));
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public void createCollectionIfNotExists(EmbeddingProperties embeddingProperties) {
+        if (embeddingProperties.getDimensions() != dimensions) {
+            throw new IllegalStateException("Embedded vector store holds " + dimensions
+                + "-dimensional vectors, but embedding.dimensions is " + embeddingProperties.getDimensions());
+        }
+        log.info("Embedded vector store in '{}' holds {} points", directory, size());
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> upsertPointsAsync(List<PointStruct> upserts) {
+        for (PointStruct point : upserts) {
+            int size = point.getVectors().getVector().getDataCount();
+            if (size != dimensions) {
+                return CompletableFuture.failedFuture(new IllegalArgumentException("Point " + point.getId().getUuid()
+                    + " has " + size + " dimensions, expected " + dimensions));
+            }
+        }
+        return write(entries -> {
+            float[] vector = new float[dimensions];
+            for (PointStruct point : upserts) {
+                List<Float> data = point.getVectors().getVector().getDataList();
+                for (int d = 0; d < dimensions; d++) {
+                    vector[d] = data.get(d);
+                }
+                VectorMath.l2Normalize(vector);
+
+                int slot = points.size();
+                vectors.write(slot, vector);
+                record(new Upsert(slot, point.getId().getUuid(), VectorStore.convertPayload(point.getPayloadMap())), entries);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deletePointsAsync(Collection<String> ids) {
+        return write(entries -> {
+            for (String id : ids) {
+                if (slots.containsKey(id)) {
+                    record(new Delete(id), entries);
+                }
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteSourceAsync(String source) {
+        return write(entries -> {
+            for (String id : pointIds(source)) {
+                record(new Delete(id), entries);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> scrollPointIdsAsync(String source) {
+        return submit(() -> {
+            lock.readLock().lock();
+            try {
+                return pointIds(source);
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<Points.ScoredPoint>> searchSimilarVectorsAsync(float[] queryVector, int limit, SearchFilter filter,
+                                                                                 PayloadProjection projection, SearchParameters parameters) {
+        return submit(() -> search(queryVector, limit, filter, projection, parameters));
+    }
+
+    @Override
+    public CompletableFuture<List<List<Points.ScoredPoint>>> searchSimilarVectorsBatchAsync(List<VectorQuery> queries,
+                                                                                           PayloadProjection projection) {
+        return submit(() -> queries.stream()
+            .map(query -> search(query.vector(), query.limit(), query.filter(), projection, null))
+            .toList());
+    }
+
+    /**
+     * Matching points ordered by ID, like Qdrant's scroll.
+     */
+    @Override
+    public CompletableFuture<List<Points.RetrievedPoint>> searchWithFiltersAsync(String chapter, String heading, String subheading,
+                                                                                 Integer pageNumber, int limit,
+                                                                                 PayloadProjection projection) {
+        PointMatcher matcher = PointMatcher.of(new SearchFilter(chapter, heading, subheading, pageNumber, null, null, null));
+        return submit(() -> {
+            lock.readLock().lock();
+            try {
+                return points.stream()
+                    .filter(point -> point != null && (matcher == null || matcher.matches(point.payload())))
+                    .sorted(Comparator.comparing(StoredPoint::id))
+                    .limit(limit)
+                    .map(point -> Points.RetrievedPoint.newBuilder()
+                        .setId(Points.PointId.newBuilder().setUuid(point.id()).build())
+                        .putAllPayload(project(point.payload(), projection))
+                        .build())
+                    .toList();
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Selective filters are answered by scoring every matching point, others by walking the graph and
+     * collecting only matching nodes, so a filter never reduces the number of results. Of the search
+     * parameters, {@code hnsw_ef}, {@code exact} and {@code score_threshold} apply; quantization ones are ignored.
+     */
+    private List<Points.ScoredPoint> search(float[] queryVector, int limit, SearchFilter filter, PayloadProjection projection,
+                                            SearchParameters parameters) {
+        if (queryVector.length != dimensions) {
+            throw new IllegalArgumentException("Query has " + queryVector.length + " dimensions, expected " + dimensions);
+        }
+        float[] query = VectorMath.l2Normalize(queryVector.clone());
+        PointMatcher matcher = PointMatcher.of(filter);
+        boolean exact = parameters != null && Boolean.TRUE.equals(parameters.getExact());
+        int ef = Math.max(parameters != null && parameters.getHnswEf() != null ? parameters.getHnswEf() : config.getEfSearch(), limit);
+        Float scoreThreshold = parameters != null ? parameters.getScoreThreshold() : null;
+        lock.readLock().lock();
+        try {
+            List<HnswGraph.Candidate> nearest;
+            if (matcher == null && !exact) {
+                nearest = graph.search(query, limit, ef, slot -> points.get(slot) != null);
+            } else {
+                int[] matching = matchingSlots(matcher);
+                nearest = exact || matching.length <= config.getExactSearchThreshold()
+                    ? exactSearch(query, matching, limit)
+                    : graph.search(query, limit, ef, slot -> points.get(slot) != null && matcher.matches(points.get(slot).payload()));
+            }
+            List<Points.ScoredPoint> results = new ArrayList<>(nearest.size());
+            for (HnswGraph.Candidate candidate : nearest) {
+                if (scoreThreshold != null && candidate.score() < scoreThreshold) {
+                    break;
+                }
+                StoredPoint point = points.get(candidate.node());
+                results.add(Points.ScoredPoint.newBuilder()
+                    .setId(Points.PointId.newBuilder().setUuid(point.id()).build())
+                    .setScore(candidate.score())
+                    .putAllPayload(project(point.payload(), projection))
+                    .build());
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] matchingSlots(PointMatcher matcher) {
+        int[] matching = new int[16];
+        int count = 0;
+        for (int slot = 0; slot < points.size(); slot++) {
+            StoredPoint point = points.get(slot);
+            if (point != null && (matcher == null || matcher.matches(point.payload()))) {
+                if (count == matching.length) {
+                    matching = Arrays.copyOf(matching, count * 2);
+                }
+                matching[count++] = slot;
+            }
+        }
+        return Arrays.copyOf(matching, count);
+    }
+
+    private List<HnswGraph.Candidate> exactSearch(float[] query, int[] candidates, int limit) {
+        PriorityQueue<HnswGraph.Candidate> best = new PriorityQueue<>(Comparator.comparingDouble(HnswGraph.Candidate::score));
+        float[] scratch = new float[dimensions];
+        for (int slot : candidates) {
+            float score = vectors.dot(slot, query, scratch);
+            if (best.size() < limit) {
+                best.add(new HnswGraph.Candidate(slot, score));
+            } else if (score > best.peek().score()) {
+                best.poll();
+                best.add(new HnswGraph.Candidate(slot, score));
+            }
+        }
+        List<HnswGraph.Candidate> sorted = new ArrayList<>(best);
+        sorted.sort(Comparator.comparingDouble(HnswGraph.Candidate::score).reversed());
+        return sorted;
+    }
+
+    /**
+     * Payload fields selected by the projection, with the same include, exclude and content rules as
+     * {@link QdrantService}'s payload selector.
+     */
+    private static Map<String, JsonWithInt.Value> project(Map<String, Object> payload, PayloadProjection projection) {
+        Set<String> include = null;
+        Set<String> exclude = new HashSet<>();
+        if (projection != null) {
+            if (projection.getInclude() != null && !projection.getInclude().isEmpty()) {
+                include = new HashSet<>(projection.getInclude());
+            } else if (projection.getExclude() != null) {
+                exclude.addAll(projection.getExclude());
+            }
+            if (projection.getContent() == PayloadProjection.ContentMode.NONE) {
+                exclude.add("content");
+            }
+        }
+        Map<String, JsonWithInt.Value> values = HashMap.newHashMap(payload.size());
+        for (Map.Entry<String, Object> field : payload.entrySet()) {
+            if ((include == null || include.contains(field.getKey())) && !exclude.contains(field.getKey())) {
+                JsonWithInt.Value value = PayloadValues.toValue(field.getValue());
+                if (value != null) {
+                    values.put(field.getKey(), value);
+                }
+            }
+        }
+        return values;
+    }
+
+    private Set<String> pointIds(String source) {
+        Set<String> ids = new HashSet<>();
+        for (StoredPoint point : points) {
+            if (point != null && source.equals(point.payload().get("source"))) {
+                ids.add(point.id());
+            }
+        }
+        return ids;
+    }
+
+    private void markDeleted(Integer slot) {
+        if (slot != null) {
+            points.set(slot, null);
+            deletedSlots++;
+        }
+    }
+
+    /**
+     * Apply a journal entry to the in-memory state. An upsert's vector must already be in its slot.
+     */
+    private void apply(Entry entry) throws IOException {
+        switch (entry) {
+            case Upsert upsert -> {
+                if (upsert.slot() != points.size()) {
+                    throw new IOException("Journal in '" + directory + "' upserts slot " + upsert.slot()
+                        + ", expected " + points.size());
+                }
+                vectors.ensureCapacity(upsert.slot() + 1);
+                markDeleted(slots.get(upsert.id()));
+                points.add(new StoredPoint(upsert.id(), upsert.payload()));
+                slots.put(upsert.id(), upsert.slot());
+                graph.add(upsert.slot());
+            }
+            case Delete delete -> markDeleted(slots.remove(delete.id()));
+        }
+    }
+
+    private void record(Entry entry, List<Entry> entries) throws IOException {
+        apply(entry);
+        entries.add(entry);
+    }
+
+    /**
+     * Run an operation on the store's executor.
+     */
+    private <T> CompletableFuture<T> submit(Callable<T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(operation.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Apply a change under the write lock and the writer lock, after catching up with other writers, and
+     * append it to the journal. On failure the state is reloaded from disk, dropping what was not journaled.
+     */
+    private CompletableFuture<Void> write(Change change) {
+        return submit(() -> {
+            lock.writeLock().lock();
+            try {
+                FileLock writers = lockWriters();
+                try {
+                    catchUp();
+                    List<Entry> entries = new ArrayList<>();
+                    change.apply(entries);
+                    if (!entries.isEmpty()) {
+                        vectors.force();
+                        appendJournal(entries);
+                        if (deletedSlots > 0 && deletedSlots >= config.getCompactionRatio() * points.size()) {
+                            compact();
+                            checkpoint();
+                        } else if (journalEntries >= config.getCheckpointInterval()) {
+                            checkpoint();
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    try {
+                        vectors.close();
+                        releaseGenerationLock();
+                        load();
+                    } catch (IOException | RuntimeException reloadFailure) {
+                        e.addSuppressed(reloadFailure);
+                    }
+                    throw e;
+                } finally {
+                    unlockWriters(writers);
+                }
+                return null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Take the writer lock of every process using the directory, and first the one of this process, which the
+     * file lock does not cover.
+     */
+    private FileLock lockWriters() throws IOException {
+        processWriters.lock();
+        try {
+            return writeLock.lock();
+        } catch (IOException | RuntimeException e) {
+            processWriters.unlock();
+            throw e;
+        }
+    }
+
+    private void unlockWriters(FileLock writers) throws IOException {
+        try {
+            writers.release();
+        } finally {
+            processWriters.unlock();
+        }
+    }
+
+    /**
+     * Delete files left behind by earlier runs when no writer is active; the next checkpoint does it otherwise.
+     */
+    private void deleteStaleFilesUnlessWriting() throws IOException {
+        if (!processWriters.tryLock()) {
+            return;
+        }
+        try {
+            FileLock writers = writeLock.tryLock();
+            if (writers != null) {
+                try {
+                    catchUp();
+                    deleteStaleFiles();
+                } finally {
+                    writers.release();
+                }
+            }
+        } finally {
+            processWriters.unlock();
+        }
+    }
+
+    /**
+     * Append entries as frames of length, CRC-32C and body. The journal is first cut back to the last
+     * complete frame, dropping one a crashed writer left half-written.
+     */
+    private void appendJournal(List<Entry> entries) throws IOException {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(frames);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream bodyOut = new DataOutputStream(body);
+        CRC32C crc = new CRC32C();
+        for (Entry entry : entries) {
+            body.reset();
+            switch (entry) {
+                case Upsert upsert -> {
+                    bodyOut.writeByte(UPSERT);
+                    bodyOut.writeInt(upsert.slot());
+                    bodyOut.writeUTF(upsert.id());
+                    byte[] payload = JSON.writeValueAsBytes(upsert.payload());
+                    bodyOut.writeInt(payload.length);
+                    bodyOut.write(payload);
+                }
+                case Delete delete -> {
+                    bodyOut.writeByte(DELETE);
+                    bodyOut.writeUTF(delete.id());
+                }
+            }
+            byte[] bytes = body.toByteArray();
+            crc.reset();
+            crc.update(bytes);
+            out.writeInt(bytes.length);
+            out.writeInt((int) crc.getValue());
+            out.write(bytes);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(frames.toByteArray());
+        try (FileChannel journal = FileChannel.open(journalFile(epoch), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            journal.truncate(journalOffset);
+            while (buffer.hasRemaining()) {
+                journal.write(buffer, journalOffset + buffer.position());
+            }
+            journal.force(false);
+        }
+        journalOffset += buffer.limit();
+        journalEntries += entries.size();
+    }
+
+    /**
+     * Apply the journal entries after the last one applied. A frame that is cut short or fails its checksum
+     * ends the replay: a writer is still appending it, or crashed while doing so.
+     *
+     * @return the number of entries applied
+     */
+    private int replayJournal() throws IOException {
+        byte[] frames;
+        try (FileChannel journal = FileChannel.open(journalFile(epoch), StandardOpenOption.READ)) {
+            long size = journal.size();
+            if (size <= journalOffset) {
+                return 0;
+            }
+            frames = Channels.newInputStream(journal.position(journalOffset)).readNBytes(Math.toIntExact(size - journalOffset));
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(frames);
+        CRC32C crc = new CRC32C();
+        int applied = 0;
+        while (buffer.remaining() >= FRAME_HEADER_BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt(start);
+            if (length < 0 || length > buffer.remaining() - FRAME_HEADER_BYTES) {
+                break;
+            }
+            crc.reset();
+            crc.update(frames, start + FRAME_HEADER_BYTES, length);
+            if ((int) crc.getValue() != buffer.getInt(start + Integer.BYTES)) {
+                break;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(frames, start + FRAME_HEADER_BYTES, length));
+            byte kind = in.readByte();
+            apply(switch (kind) {
+                case UPSERT -> new Upsert(in.readInt(), in.readUTF(), JSON.readValue(in.readNBytes(in.readInt()), PAYLOAD_TYPE));
+                case DELETE -> new Delete(in.readUTF());
+                default -> throw new IOException("Unknown journal entry " + kind + " in '" + directory + "'");
+            });
+            buffer.position(start + FRAME_HEADER_BYTES + length);
+            journalOffset += FRAME_HEADER_BYTES + length;
+            journalEntries++;
+            applied++;
+        }
+        return applied;
+    }
+
+    /**
+     * Copy the live vectors into the next vector file and rebuild the graph over them. The previous file
+     * stays in use by the index on disk until {@link #checkpoint} has replaced it.
+     */
+    private void compact() throws IOException {
+        long start = System.nanoTime();
+        int next = generation + 1;
+        Files.deleteIfExists(vectorFile(next));
+        FileLock compactedLock = shareLock(vectorFile(next), true);
+        MappedVectors compacted = MappedVectors.open(vectorFile(next), dimensions);
+        HnswGraph rebuilt = new HnswGraph(compacted, config.getM(), config.getEfConstruction());
+        List<StoredPoint> live = new ArrayList<>(slots.size());
+        float[] vector = new float[dimensions];
+        for (int slot = 0; slot < points.size(); slot++) {
+            StoredPoint point = points.get(slot);
+            if (point != null) {
+                vectors.read(slot, vector);
+                compacted.write(live.size(), vector);
+                rebuilt.add(live.size());
+                live.add(point);
+            }
+        }
+        vectors.close();
+        releaseGenerationLock();
+        int removed = deletedSlots;
+        vectors = compacted;
+        generationLock = compactedLock;
+        graph = rebuilt;
+        generation = next;
+        points.clear();
+        points.addAll(live);
+        slots.clear();
+        for (int slot = 0; slot < live.size(); slot++) {
+            slots.put(live.get(slot).id(), slot);
+        }
+        deletedSlots = 0;
+        log.info("Compacted embedded vector store in {} ms: {} points kept, {} slots removed",
+            (System.nanoTime() - start) / 1_000_000, live.size(), removed);
+    }
+
+    /**
+     * Write the index file atomically and start a new journal, then delete the files it replaces.
+     * Called with the writer lock held.
+     */
+    private void checkpoint() throws IOException {
+        vectors.force();
+        int next = epoch + 1;
+        Path index = directory.resolve(INDEX_FILE);
+        Path temp = directory.resolve(INDEX_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(dimensions);
+            out.writeInt(generation);
+            out.writeInt(next);
+            out.writeInt(graph.m());
+            out.writeInt(points.size());
+            for (StoredPoint point : points) {
+                out.writeBoolean(point != null);
+                if (point != null) {
+                    out.writeUTF(point.id());
+                    byte[] payload = JSON.writeValueAsBytes(point.payload());
+                    out.writeInt(payload.length);
+                    out.write(payload);
+                }
+            }
+            graph.write(out);
+        }
+        Files.move(temp, index, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        epoch = next;
+        journalOffset = 0;
+        journalEntries = 0;
+        deleteStaleFiles();
+    }
+
+    /**
+     * Remove journals of earlier checkpoints and vector files of other generations, left behind by a compaction
+     * or one interrupted before its checkpoint. Called with the writer lock held and the state caught up.
+     */
+    private void deleteStaleFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                Matcher journal = JOURNAL_FILE.matcher(name);
+                Matcher vectorFile = VECTOR_FILE.matcher(name);
+                if (journal.matches() && Integer.parseInt(journal.group(1)) != epoch) {
+                    Files.deleteIfExists(file);
+                } else if (vectorFile.matches() && Integer.parseInt(vectorFile.group(1)) != generation) {
+                    deleteUnlessMapped(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete a vector file unless a store still holds its share lock; a later checkpoint tries again.
+     */
+    private static void deleteUnlessMapped(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.tryLock() == null) {
+                log.debug("Keeping {}, another process still maps it", file);
+                return;
+            }
+            Files.delete(file);
+        } catch (OverlappingFileLockException e) {
+            log.debug("Keeping {}, another store of this process still maps it", file);
+        } catch (FileSystemException e) {
+            log.debug("Keeping {}: {}", file, e.getMessage());
+        }
+    }
+
+    private Path vectorFile(int generation) {
+        return directory.resolve("vectors-" + generation + ".f32");
+    }
+
+    private Path journalFile(int epoch) {
+        return directory.resolve("journal-" + epoch + ".log");
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (refresher != null) {
+            refresher.shutdown();
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+            if (refresher != null) {
+                refresher.awaitTermination(30, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.writeLock().lock();
+        try {
+            vectors.close();
+            releaseGenerationLock();
+            writeLock.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private record StoredPoint(String id, Map<String, Object> payload) {
+    }
+
+    /**
+     * A change to one point, as applied in memory and appended to the journal.
+     */
+    private sealed interface Entry permits Upsert, Delete {
+    }
+
+    private record Upsert(int slot, String id, Map<String, Object> payload) implements Entry {
+    }
+
+    private record Delete(String id) implements Entry {
+    }
+
+    @FunctionalInterface
+    private interface Change {
+        /**
+         * Apply the change in memory, adding an entry for every point it changed.
+         */
+        void apply(List<Entry> entries) throws IOException;
+    }
+
+    /**
+     * A {@link SearchFilter} evaluated against stored payloads. Text fields match when every word of the
+     * filter occurs in the field, ignoring case, like Qdrant's full-text match on a word-tokenized index.
+     */
+    private record PointMatcher(List<String> chapter, List<String> heading, List<String> subheading,
+                                Integer pageNumber, Integer pageFrom, Integer pageTo, String source) {
+
+        static PointMatcher of(SearchFilter filter) {
+            if (filter == null || filter.isEmpty()) {
+                return null;
+            }
+            return new PointMatcher(words(filter.getChapter()), words(filter.getHeading()), words(filter.getSubheading()),
+                filter.getPageNumber(), filter.getPageFrom(), filter.getPageTo(),
+                filter.getSource() == null || filter.getSource().isBlank() ? null : filter.getSource());
+        }
+
+        boolean matches(Map<String, Object> payload) {
+            if (!containsWords(payload.get("chapter"), chapter)
+                || !containsWords(payload.get("heading"), heading)
+                || !containsWords(payload.get("subheading"), subheading)) {
+                return false;
+            }
+            if (pageNumber != null || pageFrom != null || pageTo != null) {
+                if (!(payload.get("page_number") instanceof Number page)) {
+                    return false;
+                }
+                if ((pageNumber != null && page.longValue() != pageNumber)
+                    || (pageFrom != null && page.doubleValue() < pageFrom)
+                    || (pageTo != null && page.doubleValue() > pageTo)) {
+                    return false;
+                }
+            }
+            return source == null || Objects.equals(source, payload.get("source"));
+        }
+
+        private static boolean containsWords(Object field, List<String> required) {
+            if (required == null) {
+                return true;
+            }
+            return field instanceof String text && new HashSet<>(words(text)).containsAll(required);
+        }
+
+        private static List<String> words(String text) {
+            if (text == null || text.isBlank()) {
+                return null;
+            }
+            return Arrays.stream(NON_WORD.split(text.toLowerCase(Locale.ROOT)))
+                .filter(word -> !word.isEmpty())
+                .toList();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.spyder.qdrant.service;
+
+import com.spyder.qdrant.config.EmbeddingProperties;
+import com.spyder.qdrant.model.DocumentChunk;
+import com.spyder.qdrant.model.TokenizedText;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Schedules chunk embeddings into length-bucketed batches.
+ * Chunks are tokenized up front and sorted by token count, so each batch only pads up to
+ * sequences of similar length. Batches are bounded by a padded token budget rather than a
+ * fixed row count, and results are returned in the original chunk order.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EmbeddingBatchScheduler {
+
+    private final EmbeddingService embeddingService;
+    private final EmbeddingDiskCache embeddingCache;
+    private final EmbeddingProperties properties;
+
+    /**
+     * Embed chunks, reusing vectors from the on-disk cache when it is enabled so that only
+     * chunks never seen before with the current model go through inference.
+     */
+    public List<float[]> generateEmbeddings(List<DocumentChunk> chunks) {
+        if (!embeddingCache.isEnabled()) {
+            return embedChunks(chunks);
+        }
+
+        List<String> contents = chunks.stream().map(DocumentChunk::getContent).toList();
+        float[][] cached = embeddingCache.getAll(contents);
+
+        List<DocumentChunk> missing = new ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            if (cached[i] == null) {
+                missing.add(chunks.get(i));
+            }
+        }
+        log.info("Embedding cache hit for {} of {} chunks", chunks.size() - missing.size(), chunks.size());
+
+        if (!missing.isEmpty()) {
+            List<float[]> computed = embedChunks(missing);
+            // Zero vectors mark failed chunks and must not be cached
+            List<String> computedContents = new ArrayList<>(missing.size());
+            List<float[]> cacheable = new ArrayList<>(missing.size());
+            int next = 0;
+            for (int i = 0; i < chunks.size(); i++) {
+                if (cached[i] == null) {
+                    float[] embedding = computed.get(next++);
+                    cached[i] = embedding;
+                    if (!isZero(embedding)) {
+                        computedContents.add(chunks.get(i).getContent());
+                        cacheable.add(embedding);
+                    }
+                }
+            }
+            embeddingCache.putAll(computedContents, cacheable);
+        }
+        log.info("Embedding cache: {}", embeddingCache.stats());
+
+        return Arrays.asList(cached);
+    }
+
+    private List<float[]> embedChunks(List<DocumentChunk> chunks) {
+        long startTime = System.nanoTime();
+        float[][] results = new float[chunks.size()][];
+
+        // Tokenize everything first so batches can be formed on real token counts
+        List<Integer> positions = new ArrayList<>(chunks.size());
+        TokenizedText[] tokenized = new TokenizedText[chunks.size()];
+        for (int i = 0; i < chunks.size(); i++) {
+            DocumentChunk chunk = chunks.get(i);
+            try {
+                // Chunks cut on a token budget already carry their model input
+                tokenized[i] = chunk.getTokens() != null ? chunk.getTokens() : embeddingService.tokenize(chunk.getContent());
+                positions.add(i);
+            } catch (Exception e) {
+                log.error("Failed to tokenize chunk {}: {}", chunk.getId(), e.getMessage());
+                results[i] = new float[properties.getDimensions()];
+            }
+        }
+
+        // Shortest first; within a batch the last row added is always the longest
+        positions.sort(Comparator.comparingInt(position -> tokenized[position].length()));
+
+        int maxTokens = Math.max(1, properties.getBatch().getMaxTokens());
+        int maxRows = Math.max(1, properties.getBatch().getSize());
+        long realTokens = 0;
+        long paddedTokens = 0;
+        int batches = 0;
+
+        int start = 0;
+        while (start < positions.size()) {
+            int end = start + 1;
+            while (end < positions.size()
+                    && end - start < maxRows
+                    && (long) (end - start + 1) * tokenized[positions.get(end)].length() <= maxTokens) {
+                end++;
+            }
+
+            List<Integer> batchPositions = positions.subList(start, end);
+            List<TokenizedText> batch = new ArrayList<>(batchPositions.size());
+            for (int position : batchPositions) {
+                batch.add(tokenized[position]);
+                realTokens += tokenized[position].length();
+            }
+            paddedTokens += (long) batch.size() * tokenized[positions.get(end - 1)].length();
+
+            List<float[]> embeddings = embeddingService.embedTokenized(batch);
+            for (int i = 0; i < batchPositions.size(); i++) {
+                results[batchPositions.get(i)] = embeddings.get(i);
+            }
+
+            batches++;
+            start = end;
+        }
+
+        double paddingEfficiency = paddedTokens == 0 ? 1.0 : (double) realTokens / paddedTokens;
+        log.info("Embedded {} chunks in {} batches ({} real / {} padded tokens, padding efficiency {}%) in {} ms",
+                chunks.size(), batches, realTokens, paddedTokens,
+                String.format("%.1f", paddingEfficiency * 100), (System.nanoTime() - startTime) / 1_000_000);
+
+        return Arrays.asList(results);
+    }
+
+    private static boolean isZero(float[] embedding) {
+        for (float value : embedding) {
+            if (value != 0f) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
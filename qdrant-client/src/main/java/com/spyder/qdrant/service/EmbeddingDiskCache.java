@@ -0,0 +1,332 @@
+package com.spyder.qdrant.service;
+
+import com.spyder.qdrant.config.EmbeddingProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Persistent, content-addressed cache of chunk embeddings backed by a memory-mapped file.
+ * <p>
+ * Entries are keyed by SHA-256 of model name, max length and chunk content. The file header
+ * carries the model fingerprint, so switching {@code embedding.model.name} or replacing the
+ * ONNX file discards the cache on open. The file is a fixed array of slots:
+ * {@code [32-byte key][8-byte last access][4-byte CRC32C of the vector][dimensions x float32]};
+ * a slot with last access 0 is empty. A slot is cleared before it is rewritten and its last access is
+ * set last, so a write cut short leaves an empty slot; a vector that fails its checksum is dropped on read.
+ * The file is locked by the process that opens it; a second process runs without the cache.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EmbeddingDiskCache {
+
+    private static final int MAGIC = 0x454D4243; // "EMBC"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    private static final int KEY_SIZE = 32;
+    private static final int CRC_SIZE = Integer.BYTES;
+    private static final int FINGERPRINT_OFFSET = 16;
+    private static final int CLOCK_OFFSET = 48;
+    private static final String FILE_NAME = "vectors.bin";
+
+    private final EmbeddingProperties properties;
+    private final EmbeddingService embeddingService;
+
+    private FileChannel channel;
+    private boolean unavailable;
+    private MappedByteBuffer buffer;
+    private int dimensions;
+    private int capacity;
+    private int slotSize;
+    private long clock;
+    private final LinkedHashMap<String, Integer> index = new LinkedHashMap<>(16, 0.75f, true);
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public boolean isEnabled() {
+        return properties.getCache().isEnabled();
+    }
+
+    /**
+     * Look up cached embeddings for the given chunk contents. Misses are returned as {@code null}.
+     */
+    public synchronized float[][] getAll(List<String> contents) {
+        ensureOpen();
+        float[][] results = new float[contents.size()][];
+        if (channel == null) {
+            misses += contents.size();
+            return results;
+        }
+        for (int i = 0; i < contents.size(); i++) {
+            String key = key(contents.get(i));
+            Integer slot = index.get(key);
+            if (slot == null) {
+                misses++;
+                continue;
+            }
+            float[] vector = readVector(slot);
+            if (vector == null) {
+                log.warn("Embedding cache slot {} failed its checksum, dropping it", slot);
+                index.remove(key);
+                buffer.putLong(slotOffset(slot) + KEY_SIZE, 0);
+                freeSlots.add(slot);
+                misses++;
+                continue;
+            }
+            hits++;
+            results[i] = vector;
+            touch(slot);
+        }
+        return results;
+    }
+
+    /**
+     * Store embeddings for the given chunk contents, evicting the least recently used entries when full.
+     */
+    public synchronized void putAll(List<String> contents, List<float[]> embeddings) {
+        ensureOpen();
+        if (channel == null) {
+            return;
+        }
+        for (int i = 0; i < contents.size(); i++) {
+            float[] embedding = embeddings.get(i);
+            if (embedding == null || embedding.length != dimensions) {
+                continue;
+            }
+            String key = key(contents.get(i));
+            Integer slot = index.get(key);
+            if (slot == null) {
+                slot = allocateSlot();
+                index.put(key, slot);
+            }
+            writeSlot(slot, key, embedding);
+        }
+        buffer.putLong(CLOCK_OFFSET, clock);
+    }
+
+    public synchronized String stats() {
+        return String.format("%d entries, %d hits, %d misses, %d evictions", index.size(), hits, misses, evictions);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            buffer.putLong(CLOCK_OFFSET, clock);
+            buffer.force();
+            channel.close();
+            log.info("Embedding cache closed: {}", stats());
+        } catch (IOException e) {
+            log.warn("Failed to close embedding cache: {}", e.getMessage());
+        } finally {
+            channel = null;
+            buffer = null;
+        }
+    }
+
+    private void ensureOpen() {
+        if (channel != null || unavailable) {
+            return;
+        }
+        try {
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open embedding cache", e);
+        }
+    }
+
+    private void open() throws IOException {
+        dimensions = properties.getDimensions();
+        slotSize = KEY_SIZE + Long.BYTES + CRC_SIZE + dimensions * Float.BYTES;
+        capacity = Math.max(1, properties.getCache().getMaxEntries());
+        long maxCapacity = (Integer.MAX_VALUE - HEADER_SIZE) / slotSize;
+        if (capacity > maxCapacity) {
+            log.warn("Embedding cache max-entries {} exceeds a single mapping, capping at {}", capacity, maxCapacity);
+            capacity = (int) maxCapacity;
+        }
+        byte[] fingerprint = HexFormat.of().parseHex(embeddingService.getModelFingerprint());
+
+        Path directory = Paths.get(properties.getCache().getDirectory());
+        Files.createDirectories(directory);
+        Path file = directory.resolve(FILE_NAME);
+        long fileSize = HEADER_SIZE + (long) capacity * slotSize;
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (!tryLock()) {
+            channel.close();
+            channel = null;
+            unavailable = true;
+            log.warn("Embedding cache at {} is in use by another process, running without it", file);
+            return;
+        }
+        boolean valid = channel.size() == fileSize && headerMatches(fingerprint);
+        if (!valid) {
+            if (channel.size() > 0) {
+                log.info("Embedding cache at {} was built for a different model or layout, resetting it", file);
+            }
+            channel.truncate(0);
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+
+        if (valid) {
+            loadIndex();
+        } else {
+            writeHeader(fingerprint);
+            for (int slot = 0; slot < capacity; slot++) {
+                freeSlots.add(slot);
+            }
+        }
+        log.info("Embedding cache opened at {} ({} of {} slots used)", file, index.size(), capacity);
+    }
+
+    /**
+     * Lock the whole file for this process; the lock is released when the channel is closed.
+     */
+    private boolean tryLock() throws IOException {
+        try {
+            return channel.tryLock() != null;
+        } catch (OverlappingFileLockException e) {
+            return false;
+        }
+    }
+
+    private boolean headerMatches(byte[] fingerprint) throws IOException {
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                || header.getInt(8) != dimensions || header.getInt(12) != capacity) {
+            return false;
+        }
+        byte[] stored = new byte[KEY_SIZE];
+        header.get(FINGERPRINT_OFFSET, stored);
+        return Arrays.equals(stored, fingerprint);
+    }
+
+    private void writeHeader(byte[] fingerprint) {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, dimensions);
+        buffer.putInt(12, capacity);
+        buffer.put(FINGERPRINT_OFFSET, fingerprint);
+        clock = 0;
+        buffer.putLong(CLOCK_OFFSET, clock);
+    }
+
+    /**
+     * Rebuild the in-memory LRU index by replaying occupied slots in last-access order.
+     */
+    private void loadIndex() {
+        clock = buffer.getLong(CLOCK_OFFSET);
+        List<long[]> occupied = new ArrayList<>();
+        for (int slot = 0; slot < capacity; slot++) {
+            long lastAccess = buffer.getLong(slotOffset(slot) + KEY_SIZE);
+            if (lastAccess == 0) {
+                freeSlots.add(slot);
+            } else {
+                occupied.add(new long[]{lastAccess, slot});
+                clock = Math.max(clock, lastAccess);
+            }
+        }
+        occupied.sort(Comparator.comparingLong(entry -> entry[0]));
+        byte[] key = new byte[KEY_SIZE];
+        for (long[] entry : occupied) {
+            int slot = (int) entry[1];
+            buffer.get(slotOffset(slot), key);
+            index.put(HexFormat.of().formatHex(key), slot);
+        }
+    }
+
+    private int allocateSlot() {
+        Integer slot = freeSlots.poll();
+        if (slot != null) {
+            return slot;
+        }
+        Iterator<Map.Entry<String, Integer>> eldest = index.entrySet().iterator();
+        Map.Entry<String, Integer> evicted = eldest.next();
+        eldest.remove();
+        evictions++;
+        return evicted.getValue();
+    }
+
+    /**
+     * Clear the slot, write the vector and its checksum, then publish the key and last access.
+     */
+    private void writeSlot(int slot, String key, float[] embedding) {
+        int offset = slotOffset(slot);
+        buffer.putLong(offset + KEY_SIZE, 0);
+        int vectorOffset = offset + KEY_SIZE + Long.BYTES + CRC_SIZE;
+        for (int i = 0; i < dimensions; i++) {
+            buffer.putFloat(vectorOffset + i * Float.BYTES, embedding[i]);
+        }
+        buffer.putInt(offset + KEY_SIZE + Long.BYTES, checksum(vectorOffset));
+        buffer.put(offset, HexFormat.of().parseHex(key));
+        buffer.putLong(offset + KEY_SIZE, ++clock);
+    }
+
+    /**
+     * The vector in the slot, or null when it does not match its checksum.
+     */
+    private float[] readVector(int slot) {
+        int offset = slotOffset(slot);
+        int vectorOffset = offset + KEY_SIZE + Long.BYTES + CRC_SIZE;
+        if (buffer.getInt(offset + KEY_SIZE + Long.BYTES) != checksum(vectorOffset)) {
+            return null;
+        }
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = buffer.getFloat(vectorOffset + i * Float.BYTES);
+        }
+        return vector;
+    }
+
+    private int checksum(int vectorOffset) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(vectorOffset, dimensions * Float.BYTES));
+        return (int) crc.getValue();
+    }
+
+    private void touch(int slot) {
+        buffer.putLong(slotOffset(slot) + KEY_SIZE, ++clock);
+    }
+
+    private int slotOffset(int slot) {
+        // open() caps capacity so that every offset fits in an int
+        return HEADER_SIZE + slot * slotSize;
+    }
+
+    private String key(String content) {
+        MessageDigest digest = EmbeddingService.sha256();
+        digest.update((properties.getModel().getName() + "\0" + properties.getModel().getMaxLength() + "\0")
+                .getBytes(StandardCharsets.UTF_8));
+        digest.update(content.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
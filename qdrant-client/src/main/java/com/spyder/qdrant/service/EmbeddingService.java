@@ -8,24 +8,45 @@ import ai.onnxruntime.OrtException;
 import ai.onnxruntime.OrtSession;
 import com.spyder.qdrant.config.EmbeddingProperties;
 import com.spyder.qdrant.model.DocumentChunk;
+import com.spyder.qdrant.model.TokenizedText;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Slf4j
 @Service
 public class EmbeddingService {
+    private static final ThreadLocal<InferenceScratch> SCRATCH = ThreadLocal.withInitial(InferenceScratch::new);
+    
     private final EmbeddingProperties properties;
     private OrtEnvironment environment;
-    private OrtSession session;
+    private OnnxSessionPool sessionPool;
     private HuggingFaceTokenizer tokenizer;
+    private HuggingFaceTokenizer chunkingTokenizer;
+    private long[] specialPrefixIds;
+    private long[] specialSuffixIds;
+    private OptimizedModelCache.LoadableModel loadableModel;
+    private String sourceModelHash;
+    private String modelFingerprint;
     
     public EmbeddingService(EmbeddingProperties properties) {
         this.properties = properties;
@@ -38,17 +59,7 @@ public class EmbeddingService {
         // Initialize ONNX Runtime environment
         environment = OrtEnvironment.getEnvironment();
         
-        // Load the ONNX model
-        Path modelPath = Paths.get(properties.getModel().getOnnxPath());
-        if (!Files.exists(modelPath)) {
-            throw new RuntimeException("ONNX model file not found at: " + modelPath + 
-                "\nPlease see EMBEDDING_SETUP.md for setup instructions.");
-        }
-        
-        session = environment.createSession(modelPath.toString(), new OrtSession.SessionOptions());
-        log.info("ONNX model loaded successfully from: {}", modelPath);
-        
-        // Load the tokenizer
+        // Load the tokenizer first, the runtime auto-tune probe needs it
         Path tokenizerPath = Paths.get(properties.getModel().getTokenizerPath());
         if (!Files.exists(tokenizerPath)) {
             throw new RuntimeException("Tokenizer file not found at: " + tokenizerPath + 
@@ -58,13 +69,46 @@ public class EmbeddingService {
         tokenizer = HuggingFaceTokenizer.newInstance(tokenizerPath);
         log.info("Tokenizer loaded successfully from: {}", tokenizerPath);
         
+        // Same vocabulary, but never truncating and without special tokens, for token-budget chunking
+        chunkingTokenizer = HuggingFaceTokenizer.builder()
+            .optTokenizerPath(tokenizerPath)
+            .optAddSpecialTokens(false)
+            .optTruncation(false)
+            .optPadding(false)
+            .build();
+        resolveSpecialTokens();
+        
+        // Load the ONNX model
+        String onnxPath = properties.getModel().resolveOnnxPath();
+        if (onnxPath == null || !Files.exists(Paths.get(onnxPath))) {
+            throw new RuntimeException("ONNX model file not found at: " + onnxPath + 
+                " (variant " + properties.getModel().getVariant() + ")" +
+                "\nPlease see EMBEDDING_SETUP.md for setup instructions.");
+        }
+        Path modelPath = Paths.get(onnxPath);
+        
+        EmbeddingProperties.Runtime runtime = properties.getRuntime();
+        String optimizedModelDirectory = runtime.getOptimizedModelDirectory();
+        loadableModel = OptimizedModelCache.prepare(environment, modelPath,
+            optimizedModelDirectory == null || optimizedModelDirectory.isBlank() ? null : getSourceModelHash(),
+            runtime.getOptimizationLevel(), optimizedModelDirectory);
+        
+        if (runtime.isAutoTune()) {
+            sessionPool = autoTuneSessionPool(runtime);
+        } else {
+            sessionPool = OnnxSessionPool.create(environment, loadableModel.path(), loadableModel.optimizationLevel(),
+                runtime, runtime.getIntraOpThreads(), runtime.getInterOpThreads());
+        }
+        log.info("ONNX model loaded successfully from: {} ({} sessions, {} concurrent runs each)", 
+            loadableModel.path(), sessionPool.size(), Math.max(1, runtime.getConcurrentRunsPerSession()));
+        
         log.info("Embedding service initialized successfully");
     }
     
     @PreDestroy
     public void cleanup() throws OrtException {
-        if (session != null) {
-            session.close();
+        if (sessionPool != null) {
+            sessionPool.close();
         }
         if (environment != null) {
             environment.close();
@@ -72,27 +116,179 @@ public class EmbeddingService {
         if (tokenizer != null) {
             tokenizer.close();
         }
+        if (chunkingTokenizer != null) {
+            chunkingTokenizer.close();
+        }
         log.info("Embedding service cleaned up");
     }
     
+    /**
+     * Find the special tokens the model tokenizer puts around a single sequence (e.g. [CLS] ... [SEP]).
+     */
+    private void resolveSpecialTokens() {
+        Encoding probe = tokenizer.encode("a");
+        long[] ids = probe.getIds();
+        long[] specialMask = probe.getSpecialTokenMask();
+        int first = 0;
+        while (first < ids.length && specialMask[first] == 1) {
+            first++;
+        }
+        int last = ids.length;
+        while (last > first && specialMask[last - 1] == 1) {
+            last--;
+        }
+        specialPrefixIds = Arrays.copyOfRange(ids, 0, first);
+        specialSuffixIds = Arrays.copyOfRange(ids, last, ids.length);
+    }
+    
+    /**
+     * Try candidate intra-op/inter-op thread splits that fit the host's cores and keep the pool
+     * with the best throughput on a probe batch run from every concurrent run slot at once.
+     */
+    private OnnxSessionPool autoTuneSessionPool(EmbeddingProperties.Runtime runtime) throws OrtException {
+        int cores = java.lang.Runtime.getRuntime().availableProcessors();
+        int runners = Math.max(1, runtime.getSessions()) * Math.max(1, runtime.getConcurrentRunsPerSession());
+        int threadBudget = Math.max(1, cores / runners);
+        boolean parallel = runtime.getExecutionMode() == OrtSession.SessionOptions.ExecutionMode.PARALLEL;
+        
+        List<int[]> candidates = new ArrayList<>();
+        for (int intra = 1; intra <= threadBudget; intra = intra == threadBudget ? threadBudget + 1 : Math.min(intra * 2, threadBudget)) {
+            candidates.add(new int[]{intra, 1});
+            if (parallel && intra * 2 <= threadBudget) {
+                candidates.add(new int[]{intra, threadBudget / intra});
+            }
+        }
+        
+        // A probe batch that is roughly the shape of a real ingest batch
+        TokenizedText probeRow = tokenize("The quick brown fox jumps over the lazy dog. ".repeat(12));
+        List<TokenizedText> probe = Collections.nCopies(Math.min(8, Math.max(1, properties.getBatch().getSize())), probeRow);
+        
+        log.info("Auto-tuning ONNX runtime for {} cores across {} concurrent runs: {} candidate thread splits", 
+            cores, runners, candidates.size());
+        
+        OnnxSessionPool best = null;
+        double bestThroughput = -1;
+        int[] bestSplit = null;
+        ExecutorService probeExecutor = Executors.newFixedThreadPool(runners);
+        try {
+            for (int[] split : candidates) {
+                OnnxSessionPool candidate = OnnxSessionPool.create(environment, loadableModel.path(),
+                    loadableModel.optimizationLevel(), runtime, split[0], split[1]);
+                double throughput;
+                try {
+                    throughput = measureThroughput(candidate, probe, runners, probeExecutor);
+                } catch (Exception e) {
+                    log.warn("Auto-tune probe failed for intra={} inter={}: {}", split[0], split[1], e.getMessage());
+                    candidate.close();
+                    continue;
+                }
+                log.info("Auto-tune intra={} inter={}: {} rows/s", split[0], split[1], String.format("%.1f", throughput));
+                if (throughput > bestThroughput) {
+                    if (best != null) {
+                        best.close();
+                    }
+                    best = candidate;
+                    bestThroughput = throughput;
+                    bestSplit = split;
+                } else {
+                    candidate.close();
+                }
+            }
+        } finally {
+            probeExecutor.shutdownNow();
+        }
+        
+        if (best == null) {
+            log.warn("Auto-tune found no working thread split, falling back to configured values");
+            return OnnxSessionPool.create(environment, loadableModel.path(), loadableModel.optimizationLevel(),
+                runtime, runtime.getIntraOpThreads(), runtime.getInterOpThreads());
+        }
+        log.info("Auto-tune selected intra={} inter={} per session", bestSplit[0], bestSplit[1]);
+        return best;
+    }
+    
+    private double measureThroughput(OnnxSessionPool pool, List<TokenizedText> probe, int runners,
+                                     ExecutorService executor) throws Exception {
+        int warmupRuns = 2;
+        int timedRuns = 5;
+        Callable<Void> task = () -> {
+            for (int i = 0; i < warmupRuns; i++) {
+                runInference(pool, probe);
+            }
+            return null;
+        };
+        for (Future<Void> future : executor.invokeAll(Collections.nCopies(runners, task))) {
+            future.get();
+        }
+        
+        Callable<Void> timedTask = () -> {
+            for (int i = 0; i < timedRuns; i++) {
+                runInference(pool, probe);
+            }
+            return null;
+        };
+        long start = System.nanoTime();
+        for (Future<Void> future : executor.invokeAll(Collections.nCopies(runners, timedTask))) {
+            future.get();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return (double) runners * timedRuns * probe.size() / seconds;
+    }
+    
+    /**
+     * SHA-256 over the model name, max length, dimensions and the loaded ONNX file's contents.
+     * Changes whenever any of them does, so it can be used to invalidate derived artifacts.
+     */
+    public synchronized String getModelFingerprint() throws IOException {
+        if (modelFingerprint == null) {
+            MessageDigest digest = sha256();
+            digest.update((properties.getModel().getName() + "\0" + properties.getModel().getMaxLength() 
+                + "\0" + properties.getDimensions() + "\0" + getSourceModelHash()).getBytes(StandardCharsets.UTF_8));
+            modelFingerprint = HexFormat.of().formatHex(digest.digest());
+        }
+        return modelFingerprint;
+    }
+    
+    /**
+     * SHA-256 of the ONNX file selected by the configured model variant, computed once.
+     */
+    private synchronized String getSourceModelHash() throws IOException {
+        if (sourceModelHash == null) {
+            MessageDigest digest = sha256();
+            try (InputStream in = Files.newInputStream(Paths.get(properties.getModel().resolveOnnxPath()))) {
+                byte[] buffer = new byte[1 << 16];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            sourceModelHash = HexFormat.of().formatHex(digest.digest());
+        }
+        return sourceModelHash;
+    }
+    
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
     /**
      * Generate embeddings for document chunks using ONNX Runtime.
+     * Chunks are packed into batches of {@code embedding.batch.size} and each batch runs as a single inference call.
      */
     public List<float[]> generateEmbeddings(List<DocumentChunk> chunks) {
-        log.info("Generating {}-dimensional embeddings for {} chunks using BAAI/bge-small-en-v1.5", 
-                properties.getDimensions(), chunks.size());
+        int batchSize = Math.max(1, properties.getBatch().getSize());
+        log.info("Generating {}-dimensional embeddings for {} chunks using {} (batch size {})", 
+                properties.getDimensions(), chunks.size(), properties.getModel().getName(), batchSize);
         
-        List<float[]> embeddings = new ArrayList<>();
+        List<float[]> embeddings = new ArrayList<>(chunks.size());
         
-        for (DocumentChunk chunk : chunks) {
-            try {
-                float[] embedding = generateSingleEmbedding(chunk.getContent());
-                embeddings.add(embedding);
-            } catch (Exception e) {
-                log.error("Failed to generate embedding for chunk {}: {}", chunk.getId(), e.getMessage());
-                // Fallback to zero vector if embedding fails
-                embeddings.add(new float[properties.getDimensions()]);
-            }
+        for (int start = 0; start < chunks.size(); start += batchSize) {
+            List<DocumentChunk> batch = chunks.subList(start, Math.min(start + batchSize, chunks.size()));
+            embeddings.addAll(generateBatchEmbeddings(batch));
         }
         
         log.info("Generated embeddings for {} chunks", chunks.size());
@@ -111,11 +307,100 @@ public class EmbeddingService {
         }
     }
     
+    /**
+     * Generate embeddings for several text queries in one batched inference call.
+     * A query that fails gets a zero vector, the same as {@link #generateQueryEmbedding(String)}.
+     */
+    public List<float[]> generateQueryEmbeddings(List<String> queries) {
+        float[][] results = new float[queries.size()][];
+        List<Integer> positions = new ArrayList<>(queries.size());
+        List<TokenizedText> inputs = new ArrayList<>(queries.size());
+        
+        for (int i = 0; i < queries.size(); i++) {
+            try {
+                inputs.add(tokenize(queries.get(i)));
+                positions.add(i);
+            } catch (Exception e) {
+                log.error("Failed to tokenize query: {}", e.getMessage());
+                results[i] = new float[properties.getDimensions()];
+            }
+        }
+        
+        List<float[]> embeddings = embedTokenized(inputs);
+        for (int i = 0; i < positions.size(); i++) {
+            results[positions.get(i)] = embeddings.get(i);
+        }
+        
+        return Arrays.asList(results);
+    }
+    
+    /**
+     * Embed one batch of chunks. A chunk that fails to tokenize falls back to a zero vector
+     * without failing the others.
+     */
+    private List<float[]> generateBatchEmbeddings(List<DocumentChunk> batch) {
+        float[][] results = new float[batch.size()][];
+        List<Integer> positions = new ArrayList<>(batch.size());
+        List<TokenizedText> inputs = new ArrayList<>(batch.size());
+        
+        for (int i = 0; i < batch.size(); i++) {
+            DocumentChunk chunk = batch.get(i);
+            try {
+                inputs.add(tokenize(chunk.getContent()));
+                positions.add(i);
+            } catch (Exception e) {
+                log.error("Failed to tokenize chunk {}: {}", chunk.getId(), e.getMessage());
+                results[i] = new float[properties.getDimensions()];
+            }
+        }
+        
+        List<float[]> embeddings = embedTokenized(inputs);
+        for (int i = 0; i < positions.size(); i++) {
+            results[positions.get(i)] = embeddings.get(i);
+        }
+        
+        return Arrays.asList(results);
+    }
+    
+    /**
+     * Embed already tokenized texts as a single batch. If the batched run fails, its rows are
+     * retried one by one so that a single bad row only costs its own zero vector.
+     */
+    public List<float[]> embedTokenized(List<TokenizedText> inputs) {
+        if (inputs.isEmpty()) {
+            return List.of();
+        }
+        
+        try {
+            return runInference(inputs);
+        } catch (Exception e) {
+            log.warn("Batched inference failed for {} inputs, retrying individually: {}", inputs.size(), e.getMessage());
+        }
+        
+        List<float[]> embeddings = new ArrayList<>(inputs.size());
+        for (TokenizedText input : inputs) {
+            try {
+                embeddings.add(runInference(List.of(input)).get(0));
+            } catch (Exception e) {
+                log.error("Failed to generate embedding for input of {} tokens: {}", input.length(), e.getMessage());
+                // Fallback to zero vector if embedding fails
+                embeddings.add(new float[properties.getDimensions()]);
+            }
+        }
+        return embeddings;
+    }
+    
     /**
      * Generate embedding for a single text using ONNX model.
      */
     private float[] generateSingleEmbedding(String text) throws OrtException {
-        // Tokenize the input text
+        return runInference(List.of(tokenize(text))).get(0);
+    }
+    
+    /**
+     * Tokenize text and truncate it to the model's max length.
+     */
+    public TokenizedText tokenize(String text) {
         Encoding encoding = tokenizer.encode(text);
         long[] inputIds = encoding.getIds();
         long[] attentionMask = encoding.getAttentionMask();
@@ -126,80 +411,154 @@ public class EmbeddingService {
             inputIds = Arrays.copyOf(inputIds, maxLength);
             attentionMask = Arrays.copyOf(attentionMask, maxLength);
         }
+        return new TokenizedText(inputIds, attentionMask);
+    }
+    
+    /**
+     * Tokenize text without special tokens or truncation, keeping character offsets per token.
+     * Used to cut chunks on a token budget.
+     */
+    public Encoding encodeForChunking(String text) {
+        return chunkingTokenizer.encode(text);
+    }
+    
+    /**
+     * Number of tokens available for content once the model's special tokens are added.
+     */
+    public int getContentTokenBudget() {
+        return properties.getModel().getMaxLength() - getSpecialTokenCount();
+    }
+    
+    public int getSpecialTokenCount() {
+        return specialPrefixIds.length + specialSuffixIds.length;
+    }
+    
+    /**
+     * Build the model input for a window of content token ids produced by {@link #encodeForChunking(String)}.
+     */
+    public TokenizedText toModelInput(long[] contentIds, int from, int to) {
+        int length = specialPrefixIds.length + (to - from) + specialSuffixIds.length;
+        long[] inputIds = new long[length];
+        System.arraycopy(specialPrefixIds, 0, inputIds, 0, specialPrefixIds.length);
+        System.arraycopy(contentIds, from, inputIds, specialPrefixIds.length, to - from);
+        System.arraycopy(specialSuffixIds, 0, inputIds, length - specialSuffixIds.length, specialSuffixIds.length);
+        long[] attentionMask = new long[length];
+        Arrays.fill(attentionMask, 1L);
+        return new TokenizedText(inputIds, attentionMask);
+    }
+    
+    /**
+     * Run a single inference over a {@code [N, maxLen]} batch, padding every row to the longest
+     * sequence in the batch, then mean pool and normalize each row.
+     * Inputs are written into per-thread direct buffers that ONNX Runtime reads without copying,
+     * and pooling reads the flat last-hidden-state buffer instead of a nested {@code float[][][]}.
+     */
+    private List<float[]> runInference(List<TokenizedText> inputs) throws OrtException {
+        return runInference(sessionPool, inputs);
+    }
+    
+    private List<float[]> runInference(OnnxSessionPool pool, List<TokenizedText> inputs) throws OrtException {
+        int rows = inputs.size();
+        int seqLen = 0;
+        for (TokenizedText input : inputs) {
+            seqLen = Math.max(seqLen, input.inputIds().length);
+        }
         
-        // Create token_type_ids (all zeros for single sentence)
-        long[] tokenTypeIds = new long[inputIds.length];
-        Arrays.fill(tokenTypeIds, 0L);
+        // Padded positions keep id 0 and mask 0; token_type_ids are all zeros for single sentences
+        InferenceScratch scratch = SCRATCH.get().ensureCapacity(rows * seqLen);
+        LongBuffer inputIds = scratch.inputIds(rows * seqLen);
+        LongBuffer attentionMask = scratch.attentionMask(rows * seqLen);
+        LongBuffer tokenTypeIds = scratch.tokenTypeIds(rows * seqLen);
+        for (int r = 0; r < rows; r++) {
+            TokenizedText input = inputs.get(r);
+            int offset = r * seqLen;
+            int length = input.inputIds().length;
+            inputIds.put(offset, input.inputIds(), 0, length);
+            attentionMask.put(offset, input.attentionMask(), 0, length);
+            for (int i = length; i < seqLen; i++) {
+                inputIds.put(offset + i, 0L);
+                attentionMask.put(offset + i, 0L);
+            }
+        }
         
-        // Create ONNX tensors
-        try (OnnxTensor inputIdsTensor = OnnxTensor.createTensor(environment, new long[][]{inputIds});
-             OnnxTensor attentionMaskTensor = OnnxTensor.createTensor(environment, new long[][]{attentionMask});
-             OnnxTensor tokenTypeIdsTensor = OnnxTensor.createTensor(environment, new long[][]{tokenTypeIds})) {
+        // Create ONNX tensors over the direct buffers
+        long[] shape = {rows, seqLen};
+        try (OnnxTensor inputIdsTensor = OnnxTensor.createTensor(environment, inputIds, shape);
+             OnnxTensor attentionMaskTensor = OnnxTensor.createTensor(environment, attentionMask, shape);
+             OnnxTensor tokenTypeIdsTensor = OnnxTensor.createTensor(environment, tokenTypeIds, shape)) {
             
-            // Create input map
-            Map<String, OnnxTensor> inputs = new HashMap<>();
-            inputs.put("input_ids", inputIdsTensor);
-            inputs.put("attention_mask", attentionMaskTensor);
-            inputs.put("token_type_ids", tokenTypeIdsTensor);
+            Map<String, OnnxTensor> inputMap = Map.of(
+                "input_ids", inputIdsTensor,
+                "attention_mask", attentionMaskTensor,
+                "token_type_ids", tokenTypeIdsTensor);
             
             // Run inference
-            try (OrtSession.Result results = session.run(inputs)) {
-                // Get the last hidden state (typically the first output)
+            try (OrtSession.Result results = pool.run(session -> session.run(inputMap))) {
+                // Get the last hidden state (typically the first output), shaped [rows, seqLen, dim]
                 OnnxTensor outputTensor = (OnnxTensor) results.get(0);
-                float[][][] output = (float[][][]) outputTensor.getValue();
+                long[] outputShape = outputTensor.getInfo().getShape();
+                int embeddingDim = (int) outputShape[2];
+                float[] hiddenStates = toArray(outputTensor.getFloatBuffer());
                 
-                // Apply mean pooling over sequence length dimension
-                float[] embedding = meanPooling(output[0], attentionMask);
-                
-                // L2 normalize the embedding
-                return l2Normalize(embedding);
+                List<float[]> embeddings = new ArrayList<>(rows);
+                for (int r = 0; r < rows; r++) {
+                    // Apply mean pooling over the non-padded tokens, then L2 normalize
+                    float[] embedding = new float[embeddingDim];
+                    VectorMath.maskedMeanPool(hiddenStates, r * seqLen * embeddingDim, attentionMask, r * seqLen, seqLen, embedding);
+                    embeddings.add(VectorMath.l2Normalize(embedding));
+                }
+                return embeddings;
             }
         }
     }
     
     /**
-     * Apply mean pooling to the token embeddings.
+     * getFloatBuffer() hands back a heap buffer over a fresh array; use that array directly when possible.
+     */
+    private static float[] toArray(FloatBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0 
+                && buffer.remaining() == buffer.array().length) {
+            return buffer.array();
+        }
+        float[] values = new float[buffer.remaining()];
+        buffer.get(values);
+        return values;
+    }
+    
+    /**
+     * Direct, native-order input buffers reused by every inference on the same thread.
+     * They only grow, and are safe to reuse because tensors over them are closed before the run returns.
      */
-    private float[] meanPooling(float[][] tokenEmbeddings, long[] attentionMask) {
-        int embeddingDim = tokenEmbeddings[0].length;
-        float[] pooledEmbedding = new float[embeddingDim];
+    private static final class InferenceScratch {
+        private LongBuffer inputIds = allocate(0);
+        private LongBuffer attentionMask = allocate(0);
+        private LongBuffer tokenTypeIds = allocate(0);
         
-        int sumMask = 0;
-        for (int i = 0; i < tokenEmbeddings.length; i++) {
-            if (attentionMask[i] == 1) {
-                for (int j = 0; j < embeddingDim; j++) {
-                    pooledEmbedding[j] += tokenEmbeddings[i][j];
-                }
-                sumMask++;
+        InferenceScratch ensureCapacity(int elements) {
+            if (inputIds.capacity() < elements) {
+                int capacity = Math.max(elements, inputIds.capacity() * 2);
+                inputIds = allocate(capacity);
+                attentionMask = allocate(capacity);
+                tokenTypeIds = allocate(capacity);
             }
+            return this;
         }
         
-        // Average by the number of non-padded tokens
-        if (sumMask > 0) {
-            for (int j = 0; j < embeddingDim; j++) {
-                pooledEmbedding[j] /= sumMask;
-            }
+        LongBuffer inputIds(int elements) {
+            return inputIds.clear().limit(elements);
         }
         
-        return pooledEmbedding;
-    }
-    
-    /**
-     * L2 normalize the embedding vector.
-     */
-    private float[] l2Normalize(float[] embedding) {
-        float norm = 0;
-        for (float value : embedding) {
-            norm += value * value;
+        LongBuffer attentionMask(int elements) {
+            return attentionMask.clear().limit(elements);
         }
-        norm = (float) Math.sqrt(norm);
         
-        if (norm > 0) {
-            for (int i = 0; i < embedding.length; i++) {
-                embedding[i] /= norm;
-            }
+        LongBuffer tokenTypeIds(int elements) {
+            // Never written, so it stays all zeros
+            return tokenTypeIds.clear().limit(elements);
         }
         
-        return embedding;
+        private static LongBuffer allocate(int elements) {
+            return ByteBuffer.allocateDirect(elements * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,222 @@
+package com.spyder.qdrant.service;
+
+import com.spyder.qdrant.config.QdrantProperties;
+import io.grpc.Context;
+import io.grpc.Deadline;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Hedges read RPCs: when the first attempt is still running after the rolling p95 latency of its
+ * operation, an identical second attempt is sent and whichever answers first wins.
+ * Hedges are limited to {@code qdrant.hedging.budget} of all reads, are not sent when the
+ * remaining deadline (the call timeout or a deadline set on the gRPC {@link Context}) is shorter
+ * than the hedge delay, and run in the caller's gRPC context so they inherit its deadline.
+ * <p>
+ * A losing hedge is cancelled, but a losing first attempt is left to finish: its latency keeps
+ * the p95 honest and gives the time the hedge actually saved.
+ */
+@Slf4j
+@Component
+public class HedgedReads {
+
+    private static final int RECOMPUTE_EVERY = 32;
+    private static final double MAX_BUDGET_TOKENS = 10.0;
+
+    private final QdrantProperties.Hedging config;
+    private final Map<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private double budgetTokens;
+
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder budgetDenied = new LongAdder();
+    private final LongAdder deadlineSkipped = new LongAdder();
+    private final LongAdder savedNanos = new LongAdder();
+
+    public HedgedReads(QdrantProperties properties) {
+        this.config = properties.getHedging();
+        this.scheduler = config.isEnabled()
+            ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "qdrant-hedging");
+                thread.setDaemon(true);
+                return thread;
+            })
+            : null;
+    }
+
+    /**
+     * Run a read, hedging it if hedging is enabled. Every call of {@code attempt} must start an
+     * independent, identical request.
+     */
+    public <T> CompletableFuture<T> execute(String operation, Duration timeout, Supplier<CompletableFuture<T>> attempt) {
+        if (scheduler == null) {
+            return attempt.get();
+        }
+        reads.increment();
+        addBudget();
+        LatencyWindow window = windows.computeIfAbsent(operation, name -> new LatencyWindow(config.getWindowSize(), config.getPercentile()));
+        Context context = Context.current();
+        long start = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<T>> hedgeRef = new AtomicReference<>();
+        AtomicLong hedgeLatency = new AtomicLong();
+
+        CompletableFuture<T> primary = attempt.get();
+        primary.whenComplete((value, error) -> {
+            if (error == null) {
+                long latency = System.nanoTime() - start;
+                window.record(latency);
+                if (!result.complete(value) && hedgeLatency.get() > 0) {
+                    // The hedge answered first; this is how much sooner
+                    savedNanos.add(latency - hedgeLatency.get());
+                }
+                return;
+            }
+            CompletableFuture<T> hedge = hedgeRef.get();
+            if (hedge == null) {
+                result.completeExceptionally(error);
+            } else {
+                hedge.whenComplete((hedgeValue, hedgeError) -> {
+                    if (hedgeError != null) {
+                        result.completeExceptionally(error);
+                    }
+                });
+            }
+        });
+
+        long delayNanos = window.hedgeDelayNanos(config);
+        if (remainingNanos(context, timeout) <= delayNanos) {
+            deadlineSkipped.increment();
+            return result;
+        }
+        scheduler.schedule(() -> {
+            if (primary.isDone()) {
+                return;
+            }
+            if (!takeBudget()) {
+                budgetDenied.increment();
+                return;
+            }
+            hedges.increment();
+            CompletableFuture<T> hedge;
+            Context previous = context.attach();
+            try {
+                hedge = attempt.get();
+            } finally {
+                context.detach(previous);
+            }
+            hedgeRef.set(hedge);
+            result.whenComplete((value, error) -> hedge.cancel(true));
+            hedge.whenComplete((value, error) -> {
+                if (error == null && !result.isDone()) {
+                    hedgeLatency.set(System.nanoTime() - start);
+                    if (result.complete(value)) {
+                        hedgeWins.increment();
+                    }
+                }
+            });
+        }, delayNanos, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    private static long remainingNanos(Context context, Duration timeout) {
+        long remaining = timeout == null ? Long.MAX_VALUE : timeout.toNanos();
+        Deadline deadline = context.getDeadline();
+        if (deadline != null) {
+            remaining = Math.min(remaining, deadline.timeRemaining(TimeUnit.NANOSECONDS));
+        }
+        return remaining;
+    }
+
+    private synchronized void addBudget() {
+        budgetTokens = Math.min(MAX_BUDGET_TOKENS, budgetTokens + config.getBudget());
+    }
+
+    private synchronized boolean takeBudget() {
+        if (budgetTokens < 1.0) {
+            return false;
+        }
+        budgetTokens -= 1.0;
+        return true;
+    }
+
+    public Stats getStats() {
+        Map<String, Double> delays = new TreeMap<>();
+        windows.forEach((operation, window) -> delays.put(operation, window.hedgeDelayNanos(config) / 1e6));
+        return new Stats(reads.sum(), hedges.sum(), hedgeWins.sum(), budgetDenied.sum(), deadlineSkipped.sum(),
+            savedNanos.sum() / 1e6, delays);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            log.info("Hedged reads: {}", getStats());
+        }
+    }
+
+    /**
+     * @param savedMillis total time by which winning hedges beat the first attempt they replaced
+     * @param hedgeDelayMillis current hedge delay per operation
+     */
+    public record Stats(long reads, long hedges, long hedgeWins, long budgetDenied, long deadlineSkipped,
+                        double savedMillis, Map<String, Double> hedgeDelayMillis) {
+
+        public double hedgeRate() {
+            return reads == 0 ? 0.0 : (double) hedges / reads;
+        }
+    }
+
+    /**
+     * Last {@code size} successful latencies of one operation. The percentile is recomputed
+     * every {@link #RECOMPUTE_EVERY} samples rather than on every read.
+     */
+    private static final class LatencyWindow {
+        private final long[] samples;
+        private final double quantile;
+        private int next;
+        private int count;
+        private long recorded;
+        private volatile long percentileNanos = -1;
+
+        private LatencyWindow(int size, double quantile) {
+            this.samples = new long[Math.max(RECOMPUTE_EVERY, size)];
+            this.quantile = quantile;
+        }
+
+        private synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+            if (++recorded % RECOMPUTE_EVERY == 0) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                percentileNanos = sorted[Math.max(0, (int) Math.ceil(quantile * count) - 1)];
+            }
+        }
+
+        private long hedgeDelayNanos(QdrantProperties.Hedging config) {
+            long p95 = count < config.getMinSamples() || percentileNanos < 0
+                ? config.getInitialDelay().toNanos()
+                : percentileNanos;
+            return Math.max(config.getMinDelay().toNanos(), Math.min(config.getMaxDelay().toNanos(), p95));
+        }
+    }
+}
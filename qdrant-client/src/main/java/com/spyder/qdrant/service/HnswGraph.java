@@ -0,0 +1,271 @@
+package com.spyder.qdrant.service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical navigable small world graph over the vectors of a {@link MappedVectors} file
+ * (Malkov and Yashunin, 2016). Nodes are vector slots; vectors are expected to be L2-normalized,
+ * so the dot product is the cosine similarity. Neighbours are chosen with the diversity heuristic,
+ * so links span clusters instead of all pointing into the nearest one.
+ * Not thread-safe: the owner serializes {@link #add} against searches.
+ */
+final class HnswGraph {
+
+    private static final Comparator<Candidate> CLOSEST_FIRST = Comparator.comparingDouble(Candidate::score).reversed();
+    private static final Comparator<Candidate> FURTHEST_FIRST = Comparator.comparingDouble(Candidate::score);
+
+    private final MappedVectors vectors;
+    private final int m;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+
+    /**
+     * Per node and level: the neighbour count followed by the neighbour slots.
+     */
+    private int[][][] links = new int[1024][][];
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    HnswGraph(MappedVectors vectors, int m, int efConstruction) {
+        this.vectors = vectors;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int m() {
+        return m;
+    }
+
+    /**
+     * Link the next slot, whose vector must already be written, into the graph.
+     */
+    void add(int node) {
+        if (node != size) {
+            throw new IllegalArgumentException("Nodes must be added in slot order, expected " + size + " but got " + node);
+        }
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        if (size == links.length) {
+            links = Arrays.copyOf(links, size * 2);
+        }
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[maxNeighbours(l) + 1];
+        }
+        size++;
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        float[] query = new float[vectors.dimensions()];
+        float[] scratch = new float[vectors.dimensions()];
+        vectors.read(node, query);
+        Candidate entry = new Candidate(entryPoint, vectors.dot(entryPoint, query, scratch));
+        for (int l = maxLevel; l > level; l--) {
+            entry = greedyClosest(query, entry, l, scratch);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Candidate> nearest = searchLayer(query, entry, efConstruction, l, null, scratch);
+            List<Candidate> neighbours = selectNeighbours(nearest, m, scratch);
+            for (Candidate neighbour : neighbours) {
+                append(links[node][l], neighbour.node());
+                connect(neighbour.node(), node, neighbour.score(), l, scratch);
+            }
+            entry = nearest.getFirst();
+        }
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    /**
+     * The closest accepted nodes, best first. {@code accept} may be null to accept every node;
+     * rejected nodes are still traversed, so a filter does not cut the graph apart.
+     */
+    List<Candidate> search(float[] query, int k, int ef, IntPredicate accept) {
+        if (entryPoint < 0) {
+            return List.of();
+        }
+        float[] scratch = new float[vectors.dimensions()];
+        Candidate entry = new Candidate(entryPoint, vectors.dot(entryPoint, query, scratch));
+        for (int l = maxLevel; l > 0; l--) {
+            entry = greedyClosest(query, entry, l, scratch);
+        }
+        List<Candidate> nearest = searchLayer(query, entry, Math.max(ef, k), 0, accept, scratch);
+        return nearest.size() > k ? nearest.subList(0, k) : nearest;
+    }
+
+    private Candidate greedyClosest(float[] query, Candidate entry, int level, float[] scratch) {
+        Candidate closest = entry;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbours = links[closest.node()][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                float score = vectors.dot(neighbours[i], query, scratch);
+                if (score > closest.score()) {
+                    closest = new Candidate(neighbours[i], score);
+                    improved = true;
+                }
+            }
+        }
+        return closest;
+    }
+
+    private List<Candidate> searchLayer(float[] query, Candidate entry, int ef, int level, IntPredicate accept, float[] scratch) {
+        BitSet visited = new BitSet(size);
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(CLOSEST_FIRST);
+        PriorityQueue<Candidate> results = new PriorityQueue<>(FURTHEST_FIRST);
+        visited.set(entry.node());
+        candidates.add(entry);
+        if (accept == null || accept.test(entry.node())) {
+            results.add(entry);
+        }
+        while (!candidates.isEmpty()) {
+            Candidate current = candidates.poll();
+            if (results.size() >= ef && current.score() < results.peek().score()) {
+                break;
+            }
+            int[] neighbours = links[current.node()][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float score = vectors.dot(neighbour, query, scratch);
+                if (results.size() < ef || score > results.peek().score()) {
+                    Candidate candidate = new Candidate(neighbour, score);
+                    candidates.add(candidate);
+                    if (accept == null || accept.test(neighbour)) {
+                        results.add(candidate);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(CLOSEST_FIRST);
+        if (sorted.isEmpty() && accept == null) {
+            sorted.add(entry);
+        }
+        return sorted;
+    }
+
+    /**
+     * Keep a candidate only if it is closer to the base node than to every neighbour kept so far.
+     * Candidates must be sorted closest first.
+     */
+    private List<Candidate> selectNeighbours(List<Candidate> candidates, int max, float[] scratch) {
+        List<Candidate> selected = new ArrayList<>(max);
+        float[] candidateVector = new float[vectors.dimensions()];
+        for (Candidate candidate : candidates) {
+            if (selected.size() >= max) {
+                break;
+            }
+            vectors.read(candidate.node(), candidateVector);
+            boolean diverse = true;
+            for (Candidate kept : selected) {
+                if (vectors.dot(kept.node(), candidateVector, scratch) > candidate.score()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Add the back link from {@code node} to {@code added}, re-selecting the neighbours of
+     * {@code node} when its list is full.
+     */
+    private void connect(int node, int added, float score, int level, float[] scratch) {
+        int[] neighbours = links[node][level];
+        if (neighbours[0] < neighbours.length - 1) {
+            append(neighbours, added);
+            return;
+        }
+        float[] base = new float[vectors.dimensions()];
+        vectors.read(node, base);
+        List<Candidate> candidates = new ArrayList<>(neighbours[0] + 1);
+        candidates.add(new Candidate(added, score));
+        for (int i = 1; i <= neighbours[0]; i++) {
+            candidates.add(new Candidate(neighbours[i], vectors.dot(neighbours[i], base, scratch)));
+        }
+        candidates.sort(CLOSEST_FIRST);
+        List<Candidate> selected = selectNeighbours(candidates, neighbours.length - 1, scratch);
+        neighbours[0] = 0;
+        for (Candidate candidate : selected) {
+            append(neighbours, candidate.node());
+        }
+    }
+
+    private static void append(int[] neighbours, int node) {
+        neighbours[++neighbours[0]] = node;
+    }
+
+    private int maxNeighbours(int level) {
+        return level == 0 ? 2 * m : m;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        out.writeInt(entryPoint);
+        out.writeInt(maxLevel);
+        for (int node = 0; node < size; node++) {
+            out.writeByte(links[node].length);
+            for (int[] level : links[node]) {
+                out.writeShort(level[0]);
+                for (int i = 1; i <= level[0]; i++) {
+                    out.writeInt(level[i]);
+                }
+            }
+        }
+    }
+
+    void read(DataInputStream in) throws IOException {
+        size = in.readInt();
+        entryPoint = in.readInt();
+        maxLevel = in.readInt();
+        links = new int[Math.max(1024, Integer.highestOneBit(Math.max(1, size)) * 2)][][];
+        for (int node = 0; node < size; node++) {
+            int levels = in.readUnsignedByte();
+            links[node] = new int[levels][];
+            for (int l = 0; l < levels; l++) {
+                int[] neighbours = new int[maxNeighbours(l) + 1];
+                neighbours[0] = in.readUnsignedShort();
+                for (int i = 1; i <= neighbours[0]; i++) {
+                    neighbours[i] = in.readInt();
+                }
+                links[node][l] = neighbours;
+            }
+        }
+    }
+
+    record Candidate(int node, float score) {
+    }
+}
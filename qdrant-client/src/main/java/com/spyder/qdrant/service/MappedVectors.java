@@ -0,0 +1,96 @@
+package com.spyder.qdrant.service;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fixed-dimension float32 vectors in a memory-mapped file, one slot after the other in little-endian order.
+ * The vectors live in the page cache rather than on the heap and are available right after mapping,
+ * without reading the file. The mapping grows by doubling when a slot past the end is written.
+ * Slots are append-only: a written slot is never changed, so readers need no locking against writers
+ * beyond the remapping, which the owner serializes. Several processes may map the same file; one that only
+ * reads extends its mapping with {@link #ensureCapacity} when another has written past its end.
+ */
+public final class MappedVectors implements AutoCloseable {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final FileChannel channel;
+    private final int dimensions;
+    private MappedByteBuffer buffer;
+    private FloatBuffer floats;
+    private int capacity;
+
+    private MappedVectors(FileChannel channel, int dimensions) throws IOException {
+        this.channel = channel;
+        this.dimensions = dimensions;
+        long slots = channel.size() / bytesPerVector();
+        map((int) Math.max(INITIAL_CAPACITY, slots));
+    }
+
+    public static MappedVectors open(Path file, int dimensions) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new MappedVectors(channel, dimensions);
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Copy the vector in the given slot into {@code out}, which must hold {@link #dimensions()} floats.
+     */
+    public void read(int slot, float[] out) {
+        floats.get(slot * dimensions, out, 0, dimensions);
+    }
+
+    public float dot(int slot, float[] query, float[] scratch) {
+        read(slot, scratch);
+        return VectorMath.dot(query, scratch);
+    }
+
+    public void write(int slot, float[] vector) throws IOException {
+        ensureCapacity(slot + 1);
+        floats.put(slot * dimensions, vector, 0, dimensions);
+    }
+
+    /**
+     * Map at least the given number of slots.
+     */
+    public void ensureCapacity(int slots) throws IOException {
+        if (slots > capacity) {
+            map(Math.max(slots, capacity * 2));
+        }
+    }
+
+    /**
+     * Flush written vectors to disk.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    private void map(int slots) throws IOException {
+        if ((long) slots * bytesPerVector() > Integer.MAX_VALUE) {
+            throw new IOException("Vector file cannot hold " + slots + " vectors of " + dimensions + " dimensions");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) slots * bytesPerVector());
+        floats = buffer.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        capacity = slots;
+    }
+
+    private long bytesPerVector() {
+        return (long) dimensions * Float.BYTES;
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
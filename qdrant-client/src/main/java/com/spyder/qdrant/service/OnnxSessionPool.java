@@ -0,0 +1,114 @@
+package com.spyder.qdrant.service;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.OrtSession.SessionOptions.OptLevel;
+import com.spyder.qdrant.config.EmbeddingProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Fixed pool of ONNX Runtime sessions for one model.
+ * Every session is handed out up to {@code concurrentRunsPerSession} times at once, so the pool
+ * covers both "N independent sessions" and "one shared session with bounded concurrent runs".
+ */
+@Slf4j
+public class OnnxSessionPool implements AutoCloseable {
+
+    private final List<OrtSession> sessions;
+    private final BlockingQueue<OrtSession> available;
+
+    private OnnxSessionPool(List<OrtSession> sessions, int concurrentRunsPerSession) {
+        this.sessions = sessions;
+        this.available = new ArrayBlockingQueue<>(sessions.size() * concurrentRunsPerSession);
+        for (int run = 0; run < concurrentRunsPerSession; run++) {
+            available.addAll(sessions);
+        }
+    }
+
+    /**
+     * Create a pool whose sessions all use the configured runtime options with the given
+     * optimization level and thread split.
+     */
+    public static OnnxSessionPool create(OrtEnvironment environment, String modelPath, OptLevel optimizationLevel,
+                                         EmbeddingProperties.Runtime runtime,
+                                         int intraOpThreads, int interOpThreads) throws OrtException {
+        int sessionCount = Math.max(1, runtime.getSessions());
+        List<OrtSession> sessions = new ArrayList<>(sessionCount);
+        try {
+            for (int i = 0; i < sessionCount; i++) {
+                sessions.add(createSession(environment, modelPath, optimizationLevel, runtime, intraOpThreads, interOpThreads));
+            }
+        } catch (OrtException e) {
+            closeAll(sessions);
+            throw e;
+        }
+        return new OnnxSessionPool(sessions, Math.max(1, runtime.getConcurrentRunsPerSession()));
+    }
+
+    private static OrtSession createSession(OrtEnvironment environment, String modelPath, OptLevel optimizationLevel,
+                                            EmbeddingProperties.Runtime runtime,
+                                            int intraOpThreads, int interOpThreads) throws OrtException {
+        try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+            options.setOptimizationLevel(optimizationLevel);
+            options.setExecutionMode(runtime.getExecutionMode());
+            options.setCPUArenaAllocator(runtime.isCpuArenaAllocator());
+            options.setMemoryPatternOptimization(runtime.isMemoryPatternOptimization());
+            // Zero leaves the choice to ONNX Runtime
+            if (intraOpThreads > 0) {
+                options.setIntraOpNumThreads(intraOpThreads);
+            }
+            if (interOpThreads > 0) {
+                options.setInterOpNumThreads(interOpThreads);
+            }
+            return environment.createSession(modelPath, options);
+        }
+    }
+
+    /**
+     * Borrow a session for the duration of the callback. Blocks while every run slot is in use.
+     */
+    public <T> T run(SessionCallback<T> callback) throws OrtException {
+        OrtSession session;
+        try {
+            session = available.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an ONNX session", e);
+        }
+        try {
+            return callback.apply(session);
+        } finally {
+            available.add(session);
+        }
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    @Override
+    public void close() {
+        closeAll(sessions);
+    }
+
+    private static void closeAll(List<OrtSession> sessions) {
+        for (OrtSession session : sessions) {
+            try {
+                session.close();
+            } catch (OrtException e) {
+                log.warn("Failed to close ONNX session: {}", e.getMessage());
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface SessionCallback<T> {
+        T apply(OrtSession session) throws OrtException;
+    }
+}
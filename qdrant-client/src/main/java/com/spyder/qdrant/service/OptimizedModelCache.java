@@ -0,0 +1,63 @@
+package com.spyder.qdrant.service;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.OrtSession.SessionOptions.OptLevel;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Keeps ONNX Runtime's graph-optimized form of a model on disk, so later starts load the
+ * optimized graph with optimizations disabled instead of re-running them every time.
+ * Artifacts are keyed by source model hash, ONNX Runtime version and optimization level.
+ */
+@Slf4j
+final class OptimizedModelCache {
+
+    private OptimizedModelCache() {
+    }
+
+    /**
+     * Resolve the model file to load and the optimization level to load it with.
+     * Produces the optimized artifact on first use.
+     */
+    static LoadableModel prepare(OrtEnvironment environment, Path sourceModel, String sourceModelHash,
+                                 OptLevel optimizationLevel, String cacheDirectory) throws OrtException, IOException {
+        if (cacheDirectory == null || cacheDirectory.isBlank() || optimizationLevel == OptLevel.NO_OPT) {
+            return new LoadableModel(sourceModel.toString(), optimizationLevel);
+        }
+
+        Path directory = Paths.get(cacheDirectory);
+        Files.createDirectories(directory);
+        String fileName = String.format("%s-ort%s-%s.onnx",
+            sourceModelHash.substring(0, 16), environment.getVersion(), optimizationLevel.name().toLowerCase());
+        Path optimizedModel = directory.resolve(fileName);
+
+        if (Files.exists(optimizedModel)) {
+            log.info("Using cached optimized model {}", optimizedModel);
+            return new LoadableModel(optimizedModel.toString(), OptLevel.NO_OPT);
+        }
+
+        long start = System.nanoTime();
+        Path temporary = Files.createTempFile(directory, fileName, ".tmp");
+        try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+            options.setOptimizationLevel(optimizationLevel);
+            options.setOptimizedModelFilePath(temporary.toString());
+            environment.createSession(sourceModel.toString(), options).close();
+            Files.move(temporary, optimizedModel, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        log.info("Wrote optimized model {} in {} ms", optimizedModel, (System.nanoTime() - start) / 1_000_000);
+        return new LoadableModel(optimizedModel.toString(), OptLevel.NO_OPT);
+    }
+
+    record LoadableModel(String path, OptLevel optimizationLevel) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.spyder.qdrant.service;
+
+import io.qdrant.client.grpc.JsonWithInt;
+
+/**
+ * Qdrant payload values for the plain Java values stored in chunk metadata.
+ * Only scalars are supported, since chunk payloads never contain lists or nested objects.
+ */
+final class PayloadValues {
+
+    private PayloadValues() {
+    }
+
+    /**
+     * Payload value for a scalar, or null for any other kind of value.
+     */
+    static JsonWithInt.Value toValue(Object value) {
+        if (value instanceof String string) {
+            return JsonWithInt.Value.newBuilder().setStringValue(string).build();
+        } else if (value instanceof Integer integer) {
+            return JsonWithInt.Value.newBuilder().setIntegerValue(integer).build();
+        } else if (value instanceof Long number) {
+            return JsonWithInt.Value.newBuilder().setIntegerValue(number).build();
+        } else if (value instanceof Double number) {
+            return JsonWithInt.Value.newBuilder().setDoubleValue(number).build();
+        } else if (value instanceof Boolean bool) {
+            return JsonWithInt.Value.newBuilder().setBoolValue(bool).build();
+        }
+        return null;
+    }
+}
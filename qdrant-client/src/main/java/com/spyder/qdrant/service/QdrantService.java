@@ -2,7 +2,19 @@ package com.spyder.qdrant.service;
 
 import com.spyder.qdrant.config.EmbeddingProperties;
 import com.spyder.qdrant.config.QdrantProperties;
+import com.spyder.qdrant.model.PayloadProjection;
+import com.spyder.qdrant.model.SearchFilter;
+import com.spyder.qdrant.model.SearchParameters;
+import com.spyder.qdrant.model.VectorQuery;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.CodedOutputStream;
+import io.grpc.Context;
+import io.grpc.Status;
 import io.qdrant.client.QdrantClient;
+import io.qdrant.client.grpc.Collections;
 import io.qdrant.client.grpc.Collections.CreateCollection;
 import io.qdrant.client.grpc.Collections.Distance;
 import io.qdrant.client.grpc.Collections.VectorParams;
@@ -14,48 +26,236 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class QdrantService {
+public class QdrantService implements VectorStore {
+    
+    private static final String SOURCE_FIELD = "source";
+    private static final int SCROLL_PAGE_SIZE = 1000;
+    private static final Map<String, PayloadIndex> PAYLOAD_INDEXES = payloadIndexes();
+    private static final Set<Status.Code> RETRYABLE_CODES = EnumSet.of(
+        Status.Code.UNAVAILABLE, Status.Code.DEADLINE_EXCEEDED, Status.Code.RESOURCE_EXHAUSTED);
+    private static final long COLLECTION_CONFIG_TTL_NANOS = TimeUnit.MINUTES.toNanos(1);
     
     private final QdrantClient client;
     private final QdrantProperties properties;
+    private final HedgedReads hedgedReads;
+    private final AtomicReference<QuantizationLookup> quantization = new AtomicReference<>();
     
+    @Override
     public void createCollectionIfNotExists(EmbeddingProperties embeddingProperties) {
+        Collections.CollectionInfo info;
         try {
-            client.getCollectionInfoAsync(properties.getCollection()).get();
+            info = client.getCollectionInfoAsync(properties.getCollection()).get();
             log.info("Collection '{}' already exists", properties.getCollection());
         } catch (Exception e) {
             log.info("Creating collection '{}'", properties.getCollection());
-            createCollection(embeddingProperties.getDimensions());
+            createCollection(embeddingProperties.getDimensions(), null);
+            info = null;
+        }
+        if (info != null) {
+            checkStorageProfile(info.getConfig());
+            cacheQuantization(CollectionProfiles.isQuantized(info.getConfig()));
+        } else {
+            QdrantProperties.Quantization created = CollectionProfiles.resolve(properties.getStorage()).getQuantization();
+            cacheQuantization(created != QdrantProperties.Quantization.NONE);
+        }
+        ensurePayloadIndexes();
+    }
+    
+    /**
+     * Whether the collection is quantized, from its own config: until it is rebuilt, a collection keeps the
+     * quantization it was created with, whatever {@code qdrant.storage} says now. Looked up once a minute,
+     * so an alias swap to a version built differently is picked up; a failed lookup is not cached.
+     */
+    public CompletableFuture<Boolean> collectionQuantized() {
+        QuantizationLookup current = quantization.get();
+        if (current != null && System.nanoTime() - current.fetchedAt() < COLLECTION_CONFIG_TTL_NANOS) {
+            return current.quantized();
         }
+        CompletableFuture<Boolean> quantized = toCompletableFuture(
+                client.getCollectionInfoAsync(properties.getCollection(), properties.getTimeouts().getSearch()))
+            .thenApply(info -> CollectionProfiles.isQuantized(info.getConfig()));
+        QuantizationLookup lookup = new QuantizationLookup(quantized, System.nanoTime());
+        if (!quantization.compareAndSet(current, lookup)) {
+            return quantization.get().quantized();
+        }
+        quantized.whenComplete((result, error) -> {
+            if (error != null) {
+                quantization.compareAndSet(lookup, null);
+            }
+        });
+        return quantized;
+    }
+    
+    private void cacheQuantization(boolean quantized) {
+        quantization.set(new QuantizationLookup(CompletableFuture.completedFuture(quantized), System.nanoTime()));
+    }
+    
+    /**
+     * Build and start a search once the collection's quantization is known. The caller's gRPC context,
+     * which may carry a request deadline, is restored when the lookup completes on another thread.
+     */
+    private <T> CompletableFuture<T> withQuantization(Function<Boolean, CompletableFuture<T>> search) {
+        Context context = Context.current();
+        return collectionQuantized().thenCompose(quantized -> {
+            Context previous = context.attach();
+            try {
+                return search.apply(quantized);
+            } finally {
+                context.detach(previous);
+            }
+        });
     }
     
-    private void createCollection(int vectorSize) {
+    private record QuantizationLookup(CompletableFuture<Boolean> quantized, long fetchedAt) {
+    }
+    
+    /**
+     * Compare an existing collection with the configured storage profile. Differences are logged,
+     * and applied when {@code qdrant.storage.update-existing} is set.
+     */
+    private void checkStorageProfile(Collections.CollectionConfig config) {
+        QdrantProperties.Storage storage = CollectionProfiles.resolve(properties.getStorage());
+        List<String> differences = CollectionProfiles.differences(storage, config);
+        if (differences.isEmpty()) {
+            return;
+        }
+        if (!storage.isUpdateExisting()) {
+            log.warn("Collection '{}' does not match storage profile {}: {}. Set qdrant.storage.update-existing to apply it",
+                properties.getCollection(), storage.getProfile(), String.join("; ", differences));
+            return;
+        }
+        try {
+            client.updateCollectionAsync(CollectionProfiles.toUpdate(storage, properties.getCollection())).get();
+            log.info("Updated collection '{}' to storage profile {} ({}); segments are rebuilt in the background",
+                properties.getCollection(), storage.getProfile(), String.join("; ", differences));
+        } catch (Exception e) {
+            log.error("Failed to update collection '{}' to storage profile {}: {}",
+                properties.getCollection(), storage.getProfile(), e.getMessage());
+            throw new RuntimeException("Collection update failed", e);
+        }
+    }
+    
+    /**
+     * Create the payload indexes used by source-scoped operations and search filters, and replace
+     * indexes of the wrong kind. Safe to call on every start; existing collections are migrated in place.
+     */
+    public void ensurePayloadIndexes() {
+        try {
+            Collections.CollectionInfo info = client.getCollectionInfoAsync(properties.getCollection()).get();
+            int created = 0;
+            for (Map.Entry<String, PayloadIndex> required : PAYLOAD_INDEXES.entrySet()) {
+                String field = required.getKey();
+                PayloadIndex index = required.getValue();
+                Collections.PayloadSchemaInfo existing = info.getPayloadSchemaMap().get(field);
+                if (existing != null && index.matches(existing)) {
+                    continue;
+                }
+                if (existing != null) {
+                    log.info("Replacing {} index on '{}' with a {} index", existing.getDataType(), field, index.type());
+                    client.deletePayloadIndexAsync(properties.getCollection(), field, true, null, null).get();
+                }
+                client.createPayloadIndexAsync(properties.getCollection(), field,
+                    index.type(), index.params(), true, null, null).get();
+                log.info("Created {} index on '{}' in collection '{}'", index.type(), field, properties.getCollection());
+                created++;
+            }
+            if (created == 0) {
+                log.info("Payload indexes of collection '{}' are up to date", properties.getCollection());
+            }
+        } catch (Exception e) {
+            log.error("Failed to create payload indexes: {}", e.getMessage());
+            throw new RuntimeException("Payload index creation failed", e);
+        }
+    }
+    
+    private record PayloadIndex(Collections.PayloadSchemaType type, Collections.PayloadIndexParams params) {
+        
+        boolean matches(Collections.PayloadSchemaInfo existing) {
+            if (existing.getDataType() != type) {
+                return false;
+            }
+            // Integer indexes need both exact lookup (page_number match) and range support
+            if (type == Collections.PayloadSchemaType.Integer && existing.getParams().hasIntegerIndexParams()) {
+                Collections.IntegerIndexParams integer = existing.getParams().getIntegerIndexParams();
+                return (!integer.hasLookup() || integer.getLookup()) && (!integer.hasRange() || integer.getRange());
+            }
+            return true;
+        }
+    }
+    
+    private static Map<String, PayloadIndex> payloadIndexes() {
+        PayloadIndex keyword = new PayloadIndex(Collections.PayloadSchemaType.Keyword, null);
+        PayloadIndex text = new PayloadIndex(Collections.PayloadSchemaType.Text,
+            Collections.PayloadIndexParams.newBuilder()
+                .setTextIndexParams(Collections.TextIndexParams.newBuilder()
+                    .setTokenizer(Collections.TokenizerType.Word)
+                    .setLowercase(true)
+                    .build())
+                .build());
+        PayloadIndex integer = new PayloadIndex(Collections.PayloadSchemaType.Integer,
+            Collections.PayloadIndexParams.newBuilder()
+                .setIntegerIndexParams(Collections.IntegerIndexParams.newBuilder()
+                    .setLookup(true)
+                    .setRange(true)
+                    .build())
+                .build());
+        
+        Map<String, PayloadIndex> indexes = new LinkedHashMap<>();
+        indexes.put(SOURCE_FIELD, keyword);
+        indexes.put("document_type", keyword);
+        indexes.put("chapter", text);
+        indexes.put("heading", text);
+        indexes.put("subheading", text);
+        indexes.put("page_number", integer);
+        indexes.put("chunk_index", integer);
+        return indexes;
+    }
+    
+    /**
+     * Create the collection with the configured storage profile. A non-null
+     * {@code indexingThresholdKb} overrides the profile's, e.g. 0 to defer HNSW indexing during a bulk load.
+     */
+    void createCollection(int vectorSize, Integer indexingThresholdKb) {
         try {
-            VectorParams vectorParams = VectorParams.newBuilder()
+            QdrantProperties.Storage storage = CollectionProfiles.resolve(properties.getStorage());
+            if (indexingThresholdKb != null) {
+                storage.setIndexingThresholdKb(indexingThresholdKb);
+            }
+            VectorParams.Builder vectorParams = VectorParams.newBuilder()
                 .setSize(vectorSize)
-                .setDistance(Distance.Cosine)
-                .build();
+                .setDistance(Distance.Cosine);
+            CreateCollection.Builder createCollection = CreateCollection.newBuilder()
+                .setCollectionName(properties.getCollection());
+            CollectionProfiles.applyToCreate(storage, createCollection, vectorParams);
             
             VectorsConfig vectorsConfig = VectorsConfig.newBuilder()
-                .setParams(vectorParams)
-                .build();
-            
-            CreateCollection createCollection = CreateCollection.newBuilder()
-                .setCollectionName(properties.getCollection())
-                .setVectorsConfig(vectorsConfig)
+                .setParams(vectorParams.build())
                 .build();
             
-            client.createCollectionAsync(createCollection).get();
-            log.info("Collection '{}' created successfully", properties.getCollection());
+            client.createCollectionAsync(createCollection.setVectorsConfig(vectorsConfig).build()).get();
+            log.info("Collection '{}' created successfully with storage profile {}",
+                properties.getCollection(), storage.getProfile());
             
         } catch (Exception ex) {
             log.error("Failed to create collection via client library: {}", ex.getMessage());
@@ -63,108 +263,290 @@ public class QdrantService {
         }
     }
     
-    public void upsertPoints(List<PointStruct> points) throws ExecutionException, InterruptedException {
-        UpsertPoints upsertPoints = UpsertPoints.newBuilder()
-            .setCollectionName(properties.getCollection())
-            .addAllPoints(points)
-            .build();
-        
-        client.upsertAsync(upsertPoints).get();
-        log.info("Successfully upserted {} points to collection '{}'", points.size(), properties.getCollection());
-    }
-    
     /**
-     * Create a PointStruct from document chunk data with embeddings.
+     * Upsert points in batches bounded by both point count and serialized size.
+     * Up to {@code qdrant.upsert.max-in-flight} batches are sent at once without waiting for them
+     * to be applied; the last batch is sent with {@code wait=true} after all others were accepted,
+     * so the call returns once every point is visible to searches. Transient failures are retried
+     * per batch with exponential backoff.
      */
-    public PointStruct createDocumentPoint(String chunkId, String content, float[] embedding, Map<String, Object> metadata) {
-        // Convert float array to Qdrant vector format
-        java.util.List<Float> vectorData = new java.util.ArrayList<>();
-        for (float f : embedding) {
-            vectorData.add(f);
+    @Override
+    public CompletableFuture<Void> upsertPointsAsync(List<PointStruct> points) {
+        if (points.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
         }
-        io.qdrant.client.grpc.Points.Vector vector = io.qdrant.client.grpc.Points.Vector.newBuilder()
-            .addAllData(vectorData)
-            .build();
-        
-        // Build payload with metadata using Qdrant's JsonWithInt.Value
-        java.util.Map<String, JsonWithInt.Value> payload = new java.util.HashMap<>();
-        payload.put("content", JsonWithInt.Value.newBuilder().setStringValue(content).build());
+        QdrantProperties.Upsert config = properties.getUpsert();
+        List<UpsertPoints> requests = new ArrayList<>();
+        List<List<PointStruct>> batches = splitIntoBatches(points, config);
+        for (int i = 0; i < batches.size(); i++) {
+            requests.add(upsertRequest(batches.get(i), i == batches.size() - 1));
+        }
+        long totalBytes = requests.stream().mapToLong(UpsertPoints::getSerializedSize).sum();
+        long startTime = System.nanoTime();
+        AtomicInteger retries = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
         
-        // Add metadata fields
-        for (Map.Entry<String, Object> entry : metadata.entrySet()) {
-            String key = entry.getKey();
-            Object value = entry.getValue();
-            
-            if (value instanceof String) {
-                payload.put(key, JsonWithInt.Value.newBuilder().setStringValue((String) value).build());
-            } else if (value instanceof Integer) {
-                payload.put(key, JsonWithInt.Value.newBuilder().setIntegerValue((Integer) value).build());
-            } else if (value instanceof Long) {
-                payload.put(key, JsonWithInt.Value.newBuilder().setIntegerValue(((Long) value).intValue()).build());
-            } else if (value instanceof Double) {
-                payload.put(key, JsonWithInt.Value.newBuilder().setDoubleValue((Double) value).build());
-            } else if (value instanceof Boolean) {
-                payload.put(key, JsonWithInt.Value.newBuilder().setBoolValue((Boolean) value).build());
+        // Each lane sends its share of the batches one after another, so at most `lanes` are in flight
+        int lanes = Math.max(1, Math.min(config.getMaxInFlight(), requests.size() - 1));
+        List<CompletableFuture<Void>> laneFutures = new ArrayList<>(lanes);
+        for (int lane = 0; lane < lanes; lane++) {
+            CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+            for (int i = lane; i < requests.size() - 1; i += lanes) {
+                UpsertPoints request = requests.get(i);
+                chain = chain.thenCompose(ignored -> failure.get() != null
+                    ? CompletableFuture.failedFuture(failure.get())
+                    : upsertWithRetry(request, 0, retries).thenAccept(result -> { }));
             }
+            laneFutures.add(chain.whenComplete((ignored, error) -> {
+                if (error != null) {
+                    failure.compareAndSet(null, error);
+                }
+            }));
         }
-
-        // Create vector for upload
-        Points.Vectors vectors = Points.Vectors.newBuilder()
-            .setVector(vector)
-            .build();
         
-        return PointStruct.newBuilder()
-            .setId(io.qdrant.client.grpc.Points.PointId.newBuilder().setUuid(chunkId).build())
-            .setVectors(vectors)
-            .putAllPayload(payload)
+        // Consistency barrier: updates are applied in order, so waiting on the last one covers the rest
+        return CompletableFuture.allOf(laneFutures.toArray(new CompletableFuture<?>[0]))
+            .thenCompose(ignored -> upsertWithRetry(requests.get(requests.size() - 1), 0, retries))
+            .whenComplete((result, error) -> {
+                if (error != null) {
+                    log.error("Upsert to collection '{}' failed: {}", properties.getCollection(), error.getMessage());
+                    return;
+                }
+                double seconds = Math.max(1e-9, (System.nanoTime() - startTime) / 1e9);
+                log.info("Successfully upserted {} points to collection '{}' in {} batches ({} retries): {} points/s, {} MB/s",
+                    points.size(), properties.getCollection(), requests.size(), retries.get(),
+                    String.format("%.0f", points.size() / seconds),
+                    String.format("%.2f", totalBytes / seconds / (1024 * 1024)));
+            })
+            .thenAccept(result -> { });
+    }
+    
+    private static List<List<PointStruct>> splitIntoBatches(List<PointStruct> points, QdrantProperties.Upsert config) {
+        int maxPoints = Math.max(1, config.getBatchSize());
+        long maxBytes = Math.max(1, config.getMaxBatchBytes());
+        List<List<PointStruct>> batches = new ArrayList<>();
+        List<PointStruct> current = new ArrayList<>();
+        long currentBytes = 0;
+        for (PointStruct point : points) {
+            // A single point larger than the limit still goes out on its own
+            long pointBytes = CodedOutputStream.computeMessageSizeNoTag(point) + 1;
+            if (!current.isEmpty() && (current.size() >= maxPoints || currentBytes + pointBytes > maxBytes)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentBytes = 0;
+            }
+            current.add(point);
+            currentBytes += pointBytes;
+        }
+        batches.add(current);
+        return batches;
+    }
+    
+    private UpsertPoints upsertRequest(List<PointStruct> batch, boolean wait) {
+        return UpsertPoints.newBuilder()
+            .setCollectionName(properties.getCollection())
+            .setWait(wait)
+            .addAllPoints(batch)
             .build();
     }
-
-    public void clearAllPoints() throws ExecutionException, InterruptedException {
-        try {
-            DeletePoints deletePoints = DeletePoints.newBuilder()
-                .setCollectionName(properties.getCollection())
-                .setPoints(Points.PointsSelector.newBuilder()
-                    .setFilter(Filter.newBuilder().build())
-                    .build())
-                .build();
+    
+    private CompletableFuture<UpdateResult> upsertWithRetry(UpsertPoints request, int attempt, AtomicInteger retries) {
+        return toCompletableFuture(client.upsertAsync(request, properties.getTimeouts().getWrite()))
+            .exceptionallyCompose(error -> {
+                QdrantProperties.Upsert config = properties.getUpsert();
+                Status.Code code = Status.fromThrowable(error).getCode();
+                if (attempt >= config.getMaxRetries() || !RETRYABLE_CODES.contains(code)) {
+                    return CompletableFuture.failedFuture(error);
+                }
+                long backoff = Math.min(config.getMaxBackoff().toMillis(),
+                    config.getInitialBackoff().toMillis() << Math.min(attempt, 20));
+                // Jitter keeps parallel batches from retrying in lockstep
+                long delay = ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+                retries.incrementAndGet();
+                log.warn("Upsert of {} points failed with {}, retrying in {} ms (attempt {}/{})",
+                    request.getPointsCount(), code, delay, attempt + 1, config.getMaxRetries());
+                return CompletableFuture.runAsync(() -> { },
+                        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                    .thenCompose(ignored -> upsertWithRetry(request, attempt + 1, retries));
+            });
+    }
+    
+    private static <T> CompletableFuture<T> toCompletableFuture(ListenableFuture<T> listenable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Futures.addCallback(listenable, new FutureCallback<>() {
+            @Override
+            public void onSuccess(T result) {
+                future.complete(result);
+            }
             
-            client.deleteAsync(deletePoints).get();
-            log.info("Successfully cleared all points from collection '{}'", properties.getCollection());
-        } catch (Exception e) {
-            log.error("Failed to clear points from collection '{}': {}", properties.getCollection(), e.getMessage());
-            throw e;
+            @Override
+            public void onFailure(Throwable error) {
+                future.completeExceptionally(error);
+            }
+        }, MoreExecutors.directExecutor());
+        // Cancelling the returned future cancels the RPC, e.g. a hedge that lost
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                listenable.cancel(true);
+            }
+        });
+        return future;
+    }
+    
+    /**
+     * Pages through the scroll API without payloads or vectors.
+     */
+    @Override
+    public CompletableFuture<Set<String>> scrollPointIdsAsync(String source) {
+        return scrollPointIdsPage(source, null, new HashSet<>());
+    }
+    
+    private CompletableFuture<Set<String>> scrollPointIdsPage(String source, Points.PointId offset, Set<String> ids) {
+        ScrollPoints.Builder scroll = ScrollPoints.newBuilder()
+            .setCollectionName(properties.getCollection())
+            .setFilter(sourceFilter(source))
+            .setLimit(SCROLL_PAGE_SIZE)
+            .setWithPayload(Points.WithPayloadSelector.newBuilder().setEnable(false).build())
+            .setWithVectors(Points.WithVectorsSelector.newBuilder().setEnable(false).build());
+        if (offset != null) {
+            scroll.setOffset(offset);
         }
+        return toCompletableFuture(client.scrollAsync(scroll.build(), properties.getTimeouts().getScroll()))
+            .thenCompose(response -> {
+                for (Points.RetrievedPoint point : response.getResultList()) {
+                    ids.add(point.getId().getUuid());
+                }
+                return response.hasNextPageOffset()
+                    ? scrollPointIdsPage(source, response.getNextPageOffset(), ids)
+                    : CompletableFuture.completedFuture(ids);
+            });
     }
     
-    public Map<String, Object> convertPointToMap(Points.ScoredPoint point) {
-        Map<String, Object> result = new HashMap<>();
-        
-        result.put("score", point.getScore());
-        result.put("id", point.getId().getUuid());
-        
-        Map<String, Object> payload = new HashMap<>();
-        for (Map.Entry<String, JsonWithInt.Value> entry : point.getPayloadMap().entrySet()) {
-            JsonWithInt.Value value = entry.getValue();
-            if (value.hasStringValue()) {
-                payload.put(entry.getKey(), value.getStringValue());
-            } else if (value.hasIntegerValue()) {
-                payload.put(entry.getKey(), value.getIntegerValue());
-            } else if (value.hasDoubleValue()) {
-                payload.put(entry.getKey(), value.getDoubleValue());
-            } else if (value.hasBoolValue()) {
-                payload.put(entry.getKey(), value.getBoolValue());
-            }
+    @Override
+    public CompletableFuture<Void> deletePointsAsync(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
         }
-        result.put("payload", payload);
-        
-        return result;
+        List<Points.PointId> pointIds = ids.stream()
+            .map(id -> Points.PointId.newBuilder().setUuid(id).build())
+            .toList();
+        DeletePoints deletePoints = DeletePoints.newBuilder()
+            .setCollectionName(properties.getCollection())
+            .setWait(true)
+            .setPoints(Points.PointsSelector.newBuilder()
+                .setPoints(Points.PointsIdsList.newBuilder().addAllIds(pointIds).build())
+                .build())
+            .build();
+        return toCompletableFuture(client.deleteAsync(deletePoints, properties.getTimeouts().getWrite()))
+            .thenAccept(result -> log.info("Deleted {} points from collection '{}'", ids.size(), properties.getCollection()));
+    }
+    
+    private static Filter sourceFilter(String source) {
+        return Filter.newBuilder()
+            .addMust(Condition.newBuilder()
+                .setField(FieldCondition.newBuilder()
+                    .setKey(SOURCE_FIELD)
+                    .setMatch(Match.newBuilder().setKeyword(source).build())
+                    .build())
+                .build())
+            .build();
     }
 
+    @Override
+    public CompletableFuture<Void> deleteSourceAsync(String source) {
+        DeletePoints deletePoints = DeletePoints.newBuilder()
+            .setCollectionName(properties.getCollection())
+            .setWait(true)
+            .setPoints(Points.PointsSelector.newBuilder()
+                .setFilter(sourceFilter(source))
+                .build())
+            .build();
+        
+        return toCompletableFuture(client.deleteAsync(deletePoints, properties.getTimeouts().getWrite()))
+            .thenAccept(result -> log.info("Deleted source '{}' from collection '{}'", source, properties.getCollection()));
+    }
+    
     /**
      * Search for similar vectors in the collection.
      */
     public List<Points.ScoredPoint> searchSimilarVectors(float[] queryVector, int limit) throws ExecutionException, InterruptedException {
+        return searchSimilarVectors(queryVector, limit, null);
+    }
+    
+    /**
+     * Search for similar vectors among the points matching the filter. The filter is applied by
+     * Qdrant during the search, so up to {@code limit} matching points are returned.
+     */
+    public List<Points.ScoredPoint> searchSimilarVectors(float[] queryVector, int limit, SearchFilter filter) throws ExecutionException, InterruptedException {
+        return searchSimilarVectorsAsync(queryVector, limit, filter).get();
+    }
+    
+    /**
+     * Filtered vector search with per-request search parameters; null parameters use {@code qdrant.search}.
+     */
+    public List<Points.ScoredPoint> searchSimilarVectors(float[] queryVector, int limit, SearchFilter filter,
+                                                         SearchParameters parameters) throws ExecutionException, InterruptedException {
+        return searchSimilarVectorsAsync(queryVector, limit, filter, null, parameters).get();
+    }
+    
+    /**
+     * Non-blocking form of {@link #searchSimilarVectors(float[], int)}, bounded by {@code qdrant.timeouts.search}.
+     */
+    public CompletableFuture<List<Points.ScoredPoint>> searchSimilarVectorsAsync(float[] queryVector, int limit) {
+        return searchSimilarVectorsAsync(queryVector, limit, null);
+    }
+    
+    /**
+     * Non-blocking form of {@link #searchSimilarVectors(float[], int, SearchFilter)}.
+     */
+    public CompletableFuture<List<Points.ScoredPoint>> searchSimilarVectorsAsync(float[] queryVector, int limit, SearchFilter filter) {
+        return searchSimilarVectorsAsync(queryVector, limit, filter, null);
+    }
+    
+    /**
+     * Filtered vector search returning only the payload fields selected by the projection.
+     * A null projection returns the full payload.
+     */
+    @Override
+    public CompletableFuture<List<Points.ScoredPoint>> searchSimilarVectorsAsync(float[] queryVector, int limit, SearchFilter filter,
+                                                                                 PayloadProjection projection, SearchParameters parameters) {
+        return withQuantization(quantized -> {
+            SearchPoints request = searchRequest(queryVector, limit, filter, projection, parameters, quantized).build();
+            Duration timeout = properties.getTimeouts().getSearch();
+            return hedgedReads.execute("search", timeout,
+                () -> toCompletableFuture(client.searchAsync(request, timeout)));
+        });
+    }
+    
+    /**
+     * Run several vector searches in one batch request; results come back in query order.
+     */
+    public CompletableFuture<List<List<Points.ScoredPoint>>> searchSimilarVectorsBatchAsync(List<VectorQuery> queries) {
+        return searchSimilarVectorsBatchAsync(queries, null);
+    }
+    
+    /**
+     * Batch search where every query returns the payload fields selected by the projection.
+     */
+    @Override
+    public CompletableFuture<List<List<Points.ScoredPoint>>> searchSimilarVectorsBatchAsync(List<VectorQuery> queries,
+                                                                                           PayloadProjection projection) {
+        if (queries.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        return withQuantization(quantized -> {
+            List<SearchPoints> searches = queries.stream()
+                .map(query -> searchRequest(query.vector(), query.limit(), query.filter(), projection, null, quantized).build())
+                .toList();
+            Duration timeout = properties.getTimeouts().getSearch();
+            return hedgedReads.execute("search-batch", timeout,
+                    () -> toCompletableFuture(client.searchBatchAsync(properties.getCollection(), searches, null, timeout)))
+                .thenApply(results -> results.stream().map(BatchResult::getResultList).toList());
+        });
+    }
+    
+    private SearchPoints.Builder searchRequest(float[] queryVector, int limit, SearchFilter filter, PayloadProjection projection,
+                                               SearchParameters parameters, boolean quantized) {
         // Convert float array to Qdrant vector format
         List<Float> vectorData = new ArrayList<>();
         for (float f : queryVector) {
@@ -172,71 +554,196 @@ public class QdrantService {
         }
         
         // Create vector for search
-        SearchPoints searchPoints = SearchPoints.newBuilder()
+        SearchPoints.Builder searchPoints = SearchPoints.newBuilder()
             .setCollectionName(properties.getCollection())
             .addAllVector(vectorData)
             .setLimit(limit)
-            .setWithPayload(Points.WithPayloadSelector.newBuilder().setEnable(true).build())
-            .build();
+            .setWithPayload(payloadSelector(projection));
         
-        return client.searchAsync(searchPoints).get();
+        if (filter != null && !filter.isEmpty()) {
+            searchPoints.setFilter(toFilter(filter));
+        }
+        
+        QdrantProperties.Search defaults = properties.getSearch();
+        if (parameters == null) {
+            parameters = new SearchParameters();
+        }
+        SearchParams.Builder params = SearchParams.newBuilder();
+        Integer hnswEf = parameters.getHnswEf() != null ? parameters.getHnswEf() : defaults.getHnswEf();
+        if (hnswEf != null) {
+            params.setHnswEf(hnswEf);
+        }
+        if (Boolean.TRUE.equals(parameters.getExact())) {
+            params.setExact(true);
+        }
+        if (!quantized && (parameters.getOversampling() != null || parameters.getRescore() != null)) {
+            throw new IllegalArgumentException("oversampling and rescore apply to quantized collections only, and '"
+                + properties.getCollection() + "' is not quantized");
+        }
+        // Quantized indexes return approximate scores; over-fetch and re-rank with the original vectors
+        if (quantized) {
+            params.setQuantization(QuantizationSearchParams.newBuilder()
+                .setOversampling(parameters.getOversampling() != null ? parameters.getOversampling() : defaults.getOversampling())
+                .setRescore(parameters.getRescore() != null ? parameters.getRescore() : defaults.isRescore())
+                .build());
+        }
+        if (params.hasHnswEf() || params.hasExact() || params.hasQuantization()) {
+            searchPoints.setParams(params.build());
+        }
+        Float scoreThreshold = parameters.getScoreThreshold() != null ? parameters.getScoreThreshold() : defaults.getScoreThreshold();
+        if (scoreThreshold != null) {
+            searchPoints.setScoreThreshold(scoreThreshold);
+        }
+        return searchPoints;
     }
     
     /**
      * Search points based on metadata filters using scroll API for better performance.
      */
     public List<Points.RetrievedPoint> searchWithFilters(String chapter, String heading, String subheading, Integer pageNumber, int limit) throws ExecutionException, InterruptedException {
+        return searchWithFiltersAsync(chapter, heading, subheading, pageNumber, limit).get();
+    }
+    
+    /**
+     * Non-blocking form of {@link #searchWithFilters}, bounded by {@code qdrant.timeouts.scroll}.
+     */
+    public CompletableFuture<List<Points.RetrievedPoint>> searchWithFiltersAsync(String chapter, String heading, String subheading,
+                                                                                 Integer pageNumber, int limit) {
+        return searchWithFiltersAsync(chapter, heading, subheading, pageNumber, limit, null);
+    }
+    
+    /**
+     * Filtered scroll returning only the payload fields selected by the projection.
+     */
+    @Override
+    public CompletableFuture<List<Points.RetrievedPoint>> searchWithFiltersAsync(String chapter, String heading, String subheading,
+                                                                                 Integer pageNumber, int limit,
+                                                                                 PayloadProjection projection) {
+        SearchFilter searchFilter = new SearchFilter();
+        searchFilter.setChapter(chapter);
+        searchFilter.setHeading(heading);
+        searchFilter.setSubheading(subheading);
+        searchFilter.setPageNumber(pageNumber);
+        Filter filter = toFilter(searchFilter);
+        
+        ScrollPoints scrollPoints = ScrollPoints.newBuilder()
+            .setCollectionName(properties.getCollection())
+            .setFilter(filter)
+            .setLimit(limit)
+            .setWithPayload(payloadSelector(projection))
+            .build();
+        
+        Duration timeout = properties.getTimeouts().getScroll();
+        return hedgedReads.execute("scroll", timeout, () -> toCompletableFuture(client.scrollAsync(scrollPoints, timeout)))
+            .thenApply(ScrollResponse::getResultList);
+    }
+    
+    /**
+     * Payload selector for a projection. Vectors are never requested, and content the caller
+     * does not want is excluded here rather than dropped after the transfer.
+     */
+    private static WithPayloadSelector payloadSelector(PayloadProjection projection) {
+        if (projection == null) {
+            return WithPayloadSelector.newBuilder().setEnable(true).build();
+        }
+        boolean withoutContent = projection.getContent() == PayloadProjection.ContentMode.NONE;
+        if (projection.getInclude() != null && !projection.getInclude().isEmpty()) {
+            List<String> include = projection.getInclude().stream()
+                .filter(field -> !withoutContent || !"content".equals(field))
+                .toList();
+            if (include.isEmpty()) {
+                return WithPayloadSelector.newBuilder().setEnable(false).build();
+            }
+            return WithPayloadSelector.newBuilder()
+                .setInclude(PayloadIncludeSelector.newBuilder().addAllFields(include).build())
+                .build();
+        }
+        Set<String> exclude = new HashSet<>();
+        if (projection.getExclude() != null) {
+            exclude.addAll(projection.getExclude());
+        }
+        if (withoutContent) {
+            exclude.add("content");
+        }
+        if (exclude.isEmpty()) {
+            return WithPayloadSelector.newBuilder().setEnable(true).build();
+        }
+        return WithPayloadSelector.newBuilder()
+            .setExclude(PayloadExcludeSelector.newBuilder().addAllFields(exclude).build())
+            .build();
+    }
+    
+    /**
+     * Translate a search filter into Qdrant conditions; all set fields must match.
+     */
+    private static Filter toFilter(SearchFilter filter) {
         List<Condition> conditions = new ArrayList<>();
         
         // Add conditions based on provided filters
-        if (chapter != null && !chapter.trim().isEmpty()) {
+        if (filter.getChapter() != null && !filter.getChapter().trim().isEmpty()) {
             conditions.add(Condition.newBuilder()
                 .setField(FieldCondition.newBuilder()
                     .setKey("chapter")
-                    .setMatch(Match.newBuilder().setText(chapter).build())
+                    .setMatch(Match.newBuilder().setText(filter.getChapter()).build())
                     .build())
                 .build());
         }
 
-        if (heading != null && !heading.trim().isEmpty()) {
+        if (filter.getHeading() != null && !filter.getHeading().trim().isEmpty()) {
             conditions.add(Condition.newBuilder()
                 .setField(FieldCondition.newBuilder()
                     .setKey("heading")
-                    .setMatch(Match.newBuilder().setText(heading).build())
+                    .setMatch(Match.newBuilder().setText(filter.getHeading()).build())
                     .build())
                 .build());
         }
 
-        if (subheading != null && !subheading.trim().isEmpty()) {
+        if (filter.getSubheading() != null && !filter.getSubheading().trim().isEmpty()) {
             conditions.add(Condition.newBuilder()
                 .setField(FieldCondition.newBuilder()
                     .setKey("subheading")
-                    .setMatch(Match.newBuilder().setText(subheading).build())
+                    .setMatch(Match.newBuilder().setText(filter.getSubheading()).build())
                     .build())
                 .build());
         }
 
-        if (pageNumber != null) {
+        if (filter.getPageNumber() != null) {
             conditions.add(Condition.newBuilder()
                 .setField(FieldCondition.newBuilder()
                     .setKey("page_number")
-                    .setMatch(Match.newBuilder().setInteger(pageNumber.longValue()).build())
+                    .setMatch(Match.newBuilder().setInteger(filter.getPageNumber().longValue()).build())
                     .build())
                 .build());
         }
         
-        Filter filter = Filter.newBuilder()
-            .addAllMust(conditions)
-            .build();
+        if (filter.getPageFrom() != null || filter.getPageTo() != null) {
+            Range.Builder range = Range.newBuilder();
+            if (filter.getPageFrom() != null) {
+                range.setGte(filter.getPageFrom());
+            }
+            if (filter.getPageTo() != null) {
+                range.setLte(filter.getPageTo());
+            }
+            conditions.add(Condition.newBuilder()
+                .setField(FieldCondition.newBuilder()
+                    .setKey("page_number")
+                    .setRange(range.build())
+                    .build())
+                .build());
+        }
         
-        ScrollPoints scrollPoints = ScrollPoints.newBuilder()
-            .setCollectionName(properties.getCollection())
-            .setFilter(filter)
-            .setLimit(limit)
-            .setWithPayload(Points.WithPayloadSelector.newBuilder().setEnable(true).build())
-            .build();
+        if (filter.getSource() != null && !filter.getSource().trim().isEmpty()) {
+            conditions.add(Condition.newBuilder()
+                .setField(FieldCondition.newBuilder()
+                    .setKey(SOURCE_FIELD)
+                    .setMatch(Match.newBuilder().setKeyword(filter.getSource()).build())
+                    .build())
+                .build());
+        }
         
-        return client.scrollAsync(scrollPoints).get().getResultList();
+        return Filter.newBuilder()
+            .addAllMust(conditions)
+            .build();
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package com.spyder.qdrant.service;
+
+import java.nio.LongBuffer;
+
+/**
+ * Plain loops, used when the incubating Vector API is not available.
+ */
+final class ScalarVectorKernels implements VectorKernels {
+
+    @Override
+    public void maskedMeanPool(float[] hidden, int rowOffset, LongBuffer attentionMask, int maskOffset, int seqLen, float[] out) {
+        int embeddingDim = out.length;
+        
+        int sumMask = 0;
+        for (int i = 0; i < seqLen; i++) {
+            if (attentionMask.get(maskOffset + i) == 1) {
+                int tokenOffset = rowOffset + i * embeddingDim;
+                for (int j = 0; j < embeddingDim; j++) {
+                    out[j] += hidden[tokenOffset + j];
+                }
+                sumMask++;
+            }
+        }
+        
+        // Average by the number of non-padded tokens
+        if (sumMask > 0) {
+            for (int j = 0; j < embeddingDim; j++) {
+                out[j] /= sumMask;
+            }
+        }
+    }
+
+    @Override
+    public void l2Normalize(float[] vector) {
+        float norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = (float) Math.sqrt(norm);
+        
+        if (norm > 0) {
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] /= norm;
+            }
+        }
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,80 @@
+package com.spyder.qdrant.service;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.LongBuffer;
+
+/**
+ * {@code jdk.incubator.vector} kernels. Only loaded when the module is resolved at runtime,
+ * see {@link VectorMath}.
+ */
+final class SimdVectorKernels implements VectorKernels {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public void maskedMeanPool(float[] hidden, int rowOffset, LongBuffer attentionMask, int maskOffset, int seqLen, float[] out) {
+        int embeddingDim = out.length;
+        int upperBound = SPECIES.loopBound(embeddingDim);
+        
+        int sumMask = 0;
+        for (int i = 0; i < seqLen; i++) {
+            if (attentionMask.get(maskOffset + i) != 1) {
+                continue;
+            }
+            int tokenOffset = rowOffset + i * embeddingDim;
+            int j = 0;
+            for (; j < upperBound; j += SPECIES.length()) {
+                FloatVector.fromArray(SPECIES, out, j)
+                    .add(FloatVector.fromArray(SPECIES, hidden, tokenOffset + j))
+                    .intoArray(out, j);
+            }
+            for (; j < embeddingDim; j++) {
+                out[j] += hidden[tokenOffset + j];
+            }
+            sumMask++;
+        }
+        
+        if (sumMask > 0) {
+            divide(out, sumMask);
+        }
+    }
+
+    @Override
+    public void l2Normalize(float[] vector) {
+        float norm = (float) Math.sqrt(dot(vector, 0, vector, 0, vector.length));
+        if (norm > 0) {
+            divide(vector, norm);
+        }
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        int upperBound = SPECIES.loopBound(length);
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (; i < upperBound; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, aOffset + i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, bOffset + i);
+            sum = va.fma(vb, sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            result += a[aOffset + i] * b[bOffset + i];
+        }
+        return result;
+    }
+
+    private static void divide(float[] vector, float divisor) {
+        int upperBound = SPECIES.loopBound(vector.length);
+        int i = 0;
+        for (; i < upperBound; i += SPECIES.length()) {
+            FloatVector.fromArray(SPECIES, vector, i).div(divisor).intoArray(vector, i);
+        }
+        for (; i < vector.length; i++) {
+            vector[i] /= divisor;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.spyder.qdrant.service;
+
+import java.nio.LongBuffer;
+
+/**
+ * Float kernels used on the embedding and search hot paths.
+ */
+interface VectorKernels {
+
+    /**
+     * Add up the token rows whose attention mask is 1 and divide by their count.
+     * Token {@code i} starts at {@code hidden[rowOffset + i * out.length]}.
+     */
+    void maskedMeanPool(float[] hidden, int rowOffset, LongBuffer attentionMask, int maskOffset, int seqLen, float[] out);
+
+    /**
+     * Scale the vector in place to unit length. Zero vectors are left untouched.
+     */
+    void l2Normalize(float[] vector);
+
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+}
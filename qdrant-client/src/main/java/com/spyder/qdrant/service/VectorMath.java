@@ -0,0 +1,62 @@
+package com.spyder.qdrant.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.LongBuffer;
+
+/**
+ * Entry point for the float kernels used by embedding pooling and vector search.
+ * Uses SIMD kernels from {@code jdk.incubator.vector} when the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}, and falls back to scalar loops otherwise.
+ * Both implementations are checked against each other by {@code VectorKernelsTest}.
+ */
+@Slf4j
+public final class VectorMath {
+
+    private static final VectorKernels SCALAR = new ScalarVectorKernels();
+    private static final VectorKernels KERNELS = selectKernels();
+
+    private VectorMath() {
+    }
+
+    public static boolean isSimd() {
+        return KERNELS != SCALAR;
+    }
+
+    public static void maskedMeanPool(float[] hidden, int rowOffset, LongBuffer attentionMask, int maskOffset, int seqLen, float[] out) {
+        KERNELS.maskedMeanPool(hidden, rowOffset, attentionMask, maskOffset, seqLen, out);
+    }
+
+    public static float[] l2Normalize(float[] vector) {
+        KERNELS.l2Normalize(vector);
+        return vector;
+    }
+
+    public static float dot(float[] a, float[] b) {
+        return KERNELS.dot(a, 0, b, 0, a.length);
+    }
+
+    public static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        return KERNELS.dot(a, aOffset, b, bOffset, length);
+    }
+
+    public static float cosine(float[] a, float[] b) {
+        float normProduct = (float) Math.sqrt(dot(a, a) * dot(b, b));
+        return normProduct == 0 ? 0 : dot(a, b) / normProduct;
+    }
+
+    private static VectorKernels selectKernels() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            log.info("jdk.incubator.vector not enabled, using scalar vector kernels");
+            return SCALAR;
+        }
+        try {
+            VectorKernels simd = new SimdVectorKernels();
+            log.info("Using SIMD vector kernels");
+            return simd;
+        } catch (LinkageError e) {
+            log.warn("Failed to load SIMD vector kernels, using scalar kernels: {}", e.getMessage());
+            return SCALAR;
+        }
+    }
+}
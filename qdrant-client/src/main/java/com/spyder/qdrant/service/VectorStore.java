@@ -0,0 +1,160 @@
+package com.spyder.qdrant.service;
+
+import com.spyder.qdrant.config.EmbeddingProperties;
+import com.spyder.qdrant.model.PayloadProjection;
+import com.spyder.qdrant.model.SearchFilter;
+import com.spyder.qdrant.model.SearchParameters;
+import com.spyder.qdrant.model.VectorQuery;
+import io.qdrant.client.grpc.JsonWithInt;
+import io.qdrant.client.grpc.Points;
+import io.qdrant.client.grpc.Points.PointStruct;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Storage and search of document chunk points. {@link QdrantService} talks to a Qdrant server,
+ * {@link EmbeddedVectorStore} keeps an HNSW index in process for single-book deployments.
+ * Points and results use Qdrant's message types in both, so callers do not care which one is configured.
+ */
+public interface VectorStore {
+
+    void createCollectionIfNotExists(EmbeddingProperties embeddingProperties);
+
+    /**
+     * Insert or overwrite points by ID. The future completes once the points are visible to searches.
+     */
+    CompletableFuture<Void> upsertPointsAsync(List<PointStruct> points);
+
+    CompletableFuture<Void> deletePointsAsync(Collection<String> ids);
+
+    /**
+     * IDs of every point ingested from the given source.
+     */
+    CompletableFuture<Set<String>> scrollPointIdsAsync(String source);
+
+    CompletableFuture<Void> deleteSourceAsync(String source);
+
+    /**
+     * Vector search among the points matching the filter, returning the payload fields selected by the
+     * projection. A null filter matches every point, a null projection returns the full payload and
+     * null parameters use the store's configured search settings.
+     */
+    CompletableFuture<List<Points.ScoredPoint>> searchSimilarVectorsAsync(float[] queryVector, int limit, SearchFilter filter,
+                                                                          PayloadProjection projection, SearchParameters parameters);
+
+    default CompletableFuture<List<Points.ScoredPoint>> searchSimilarVectorsAsync(float[] queryVector, int limit, SearchFilter filter,
+                                                                                  PayloadProjection projection) {
+        return searchSimilarVectorsAsync(queryVector, limit, filter, projection, null);
+    }
+
+    /**
+     * Several vector searches at once; results come back in query order.
+     */
+    CompletableFuture<List<List<Points.ScoredPoint>>> searchSimilarVectorsBatchAsync(List<VectorQuery> queries,
+                                                                                    PayloadProjection projection);
+
+    /**
+     * Up to {@code limit} points matching the metadata filters, without a query vector.
+     */
+    CompletableFuture<List<Points.RetrievedPoint>> searchWithFiltersAsync(String chapter, String heading, String subheading,
+                                                                          Integer pageNumber, int limit,
+                                                                          PayloadProjection projection);
+
+    /**
+     * Upsert points and wait until they are applied.
+     */
+    default void upsertPoints(List<PointStruct> points) throws ExecutionException, InterruptedException {
+        upsertPointsAsync(points).get();
+    }
+
+    /**
+     * Delete points by ID and wait until the deletion is applied.
+     */
+    default void deletePoints(Collection<String> ids) throws ExecutionException, InterruptedException {
+        deletePointsAsync(ids).get();
+    }
+
+    default Set<String> scrollPointIds(String source) throws ExecutionException, InterruptedException {
+        return scrollPointIdsAsync(source).get();
+    }
+
+    /**
+     * Delete every point of one source and wait until the deletion is applied.
+     */
+    default void deleteSource(String source) throws ExecutionException, InterruptedException {
+        deleteSourceAsync(source).get();
+    }
+
+    /**
+     * Replace every point of one source with the given points. New points are written first and
+     * leftover points of the source are deleted afterwards, so the source stays searchable throughout
+     * and other sources are never touched.
+     */
+    default void replaceSource(String source, List<PointStruct> points) throws ExecutionException, InterruptedException {
+        Set<String> staleIds = scrollPointIds(source);
+        upsertPoints(points);
+        for (PointStruct point : points) {
+            staleIds.remove(point.getId().getUuid());
+        }
+        deletePoints(staleIds);
+    }
+
+    /**
+     * Create a PointStruct from document chunk data with embeddings.
+     */
+    default PointStruct createDocumentPoint(String chunkId, String content, float[] embedding, Map<String, Object> metadata) {
+        Points.Vector.Builder vector = Points.Vector.newBuilder();
+        for (float f : embedding) {
+            vector.addData(f);
+        }
+
+        Map<String, JsonWithInt.Value> payload = HashMap.newHashMap(metadata.size() + 1);
+        payload.put("content", JsonWithInt.Value.newBuilder().setStringValue(content).build());
+        for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+            JsonWithInt.Value value = PayloadValues.toValue(entry.getValue());
+            if (value != null) {
+                payload.put(entry.getKey(), value);
+            }
+        }
+
+        return PointStruct.newBuilder()
+            .setId(Points.PointId.newBuilder().setUuid(chunkId).build())
+            .setVectors(Points.Vectors.newBuilder().setVector(vector.build()).build())
+            .putAllPayload(payload)
+            .build();
+    }
+
+    default Map<String, Object> convertPointToMap(Points.ScoredPoint point) {
+        Map<String, Object> result = HashMap.newHashMap(3);
+        result.put("score", point.getScore());
+        result.put("id", point.getId().getUuid());
+        result.put("payload", convertPayload(point.getPayloadMap()));
+        return result;
+    }
+
+    /**
+     * Plain Java values for the scalar payload fields; other value kinds are skipped.
+     */
+    static Map<String, Object> convertPayload(Map<String, JsonWithInt.Value> fields) {
+        Map<String, Object> payload = HashMap.newHashMap(fields.size());
+        for (Map.Entry<String, JsonWithInt.Value> entry : fields.entrySet()) {
+            JsonWithInt.Value value = entry.getValue();
+            if (value.hasStringValue()) {
+                payload.put(entry.getKey(), value.getStringValue());
+            } else if (value.hasIntegerValue()) {
+                payload.put(entry.getKey(), value.getIntegerValue());
+            } else if (value.hasDoubleValue()) {
+                payload.put(entry.getKey(), value.getDoubleValue());
+            } else if (value.hasBoolValue()) {
+                payload.put(entry.getKey(), value.getBoolValue());
+            }
+        }
+        return payload;
+    }
+}
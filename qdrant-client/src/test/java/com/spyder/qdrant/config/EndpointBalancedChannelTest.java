@@ -0,0 +1,194 @@
+package com.spyder.qdrant.config;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.grpc.ManagedChannel;
+import io.grpc.StatusRuntimeException;
+import io.qdrant.client.grpc.Points.DeletePoints;
+import io.qdrant.client.grpc.Points.SearchPoints;
+import io.qdrant.client.grpc.Points.SearchResponse;
+import io.qdrant.client.grpc.Points.UpsertPoints;
+import io.qdrant.client.grpc.PointsGrpc;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A write server and two read replicas, all in-process. Health checks run when the test calls
+ * {@link #runHealthChecks()} rather than on a timer.
+ */
+class EndpointBalancedChannelTest {
+
+    private final List<Runnable> healthChecks = new ArrayList<>();
+    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1) {
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+            healthChecks.add(command);
+            return super.schedule(() -> { }, 1, TimeUnit.DAYS);
+        }
+    };
+
+    private StandInQdrant writer;
+    private StandInQdrant first;
+    private StandInQdrant second;
+    private EndpointBalancedChannel channel;
+
+    @BeforeEach
+    void start() throws Exception {
+        String suffix = UUID.randomUUID().toString();
+        writer = StandInQdrant.start("writer-" + suffix);
+        first = StandInQdrant.start("first-" + suffix);
+        second = StandInQdrant.start("second-" + suffix);
+
+        QdrantProperties.Balancing balancing = new QdrantProperties.Balancing();
+        balancing.setUnhealthyThreshold(2);
+        balancing.setHealthyThreshold(3);
+        List<ManagedChannel> readChannels = List.of(first.channel(), second.channel());
+        channel = new EndpointBalancedChannel(writer.channel(), List.of(first.name(), second.name()), readChannels,
+            balancing, scheduler);
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        scheduler.shutdownNow();
+        writer.close();
+        first.close();
+        second.close();
+    }
+
+    @Test
+    void writesAlwaysGoToTheWriteChannel() {
+        PointsGrpc.PointsBlockingStub points = PointsGrpc.newBlockingStub(channel);
+        for (int i = 0; i < 10; i++) {
+            points.upsert(UpsertPoints.getDefaultInstance());
+            points.search(SearchPoints.getDefaultInstance());
+        }
+        // The stand-in does not implement deletes, but the call still shows where it went
+        assertThrows(StatusRuntimeException.class, () -> points.delete(DeletePoints.getDefaultInstance()));
+
+        assertEquals(10, writer.calls("Upsert"));
+        assertEquals(1, writer.calls("Delete"));
+        assertEquals(0, writer.calls("Search"));
+        assertEquals(0, first.calls("Upsert") + second.calls("Upsert") + first.calls("Delete") + second.calls("Delete"));
+        assertEquals(10, first.calls("Search") + second.calls("Search"));
+    }
+
+    @Test
+    void failingHealthChecksEjectAndPassingOnesReadmit() {
+        first.setUnavailable(true);
+
+        runHealthChecks();
+        assertTrue(stats(first).healthy(), "one failure is below the unhealthy threshold");
+        runHealthChecks();
+        assertFalse(stats(first).healthy());
+        assertEquals(1, stats(first).ejections());
+
+        PointsGrpc.PointsBlockingStub points = PointsGrpc.newBlockingStub(channel);
+        for (int i = 0; i < 10; i++) {
+            points.search(SearchPoints.getDefaultInstance());
+        }
+        assertEquals(0, first.calls("Search"));
+        assertEquals(10, second.calls("Search"));
+
+        first.setUnavailable(false);
+        runHealthChecks();
+        runHealthChecks();
+        assertFalse(stats(first).healthy(), "two successes are below the healthy threshold");
+        runHealthChecks();
+        assertTrue(stats(first).healthy());
+
+        // Re-admitted with a fresh latency average, so it is tried first
+        points.search(SearchPoints.getDefaultInstance());
+        assertEquals(1, first.calls("Search"));
+    }
+
+    @Test
+    void unavailableCallsEjectTheEndpoint() {
+        first.setUnavailable(true);
+        PointsGrpc.PointsBlockingStub points = PointsGrpc.newBlockingStub(channel);
+
+        int failures = 0;
+        for (int i = 0; i < 20; i++) {
+            try {
+                points.search(SearchPoints.getDefaultInstance());
+            } catch (StatusRuntimeException e) {
+                failures++;
+            }
+        }
+
+        assertEquals(2, failures);
+        assertFalse(stats(first).healthy());
+        assertEquals(18, second.calls("Search"));
+    }
+
+    @Test
+    void readsPreferTheLowerLatencyEndpoint() {
+        PointsGrpc.PointsBlockingStub points = PointsGrpc.newBlockingStub(channel);
+        search(points, 20);
+        second.setSearchDelay(Duration.ofMillis(100));
+        long before = second.calls("Search");
+
+        search(points, 30);
+
+        long toSecond = second.calls("Search") - before;
+        assertTrue(toSecond <= 3, "slow endpoint served " + toSecond + " of 30 searches");
+    }
+
+    @Test
+    void outstandingCallsWeighTheScore() throws Exception {
+        PointsGrpc.PointsBlockingStub points = PointsGrpc.newBlockingStub(channel);
+        search(points, 20);
+        first.setSearchDelay(Duration.ofMillis(20));
+        second.setSearchDelay(Duration.ofMillis(20));
+        search(points, 20);
+        long firstBefore = first.calls("Search");
+        long secondBefore = second.calls("Search");
+
+        // With similar latencies, only the in-flight factor keeps concurrent reads off a single endpoint
+        PointsGrpc.PointsFutureStub futures = PointsGrpc.newFutureStub(channel);
+        List<ListenableFuture<SearchResponse>> searches = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            searches.add(futures.search(SearchPoints.getDefaultInstance()));
+        }
+        Futures.allAsList(searches).get(5, TimeUnit.SECONDS);
+
+        long toFirst = first.calls("Search") - firstBefore;
+        long toSecond = second.calls("Search") - secondBefore;
+        assertTrue(toFirst >= 2 && toSecond >= 2, "concurrent searches split " + toFirst + "/" + toSecond);
+    }
+
+    /**
+     * Sequential searches; the first ones also warm up both endpoints, so class loading does not
+     * count as latency.
+     */
+    private static void search(PointsGrpc.PointsBlockingStub points, int count) {
+        for (int i = 0; i < count; i++) {
+            points.search(SearchPoints.getDefaultInstance());
+        }
+    }
+
+    private void runHealthChecks() {
+        healthChecks.forEach(Runnable::run);
+    }
+
+    private QdrantChannelFactory.EndpointStats stats(StandInQdrant server) {
+        return channel.getEndpointStats().stream()
+            .filter(stats -> stats.address().equals(server.name()))
+            .findFirst()
+            .orElseThrow();
+    }
+}
@@ -0,0 +1,133 @@
+package com.spyder.qdrant.config;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.qdrant.client.grpc.JsonWithInt;
+import io.qdrant.client.grpc.Points.CountPoints;
+import io.qdrant.client.grpc.Points.PointStruct;
+import io.qdrant.client.grpc.Points.SearchPoints;
+import io.qdrant.client.grpc.Points.UpsertPoints;
+import io.qdrant.client.grpc.PointsGrpc;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Channels from the factory, with its interceptors and pooling, over an in-process transport.
+ */
+class QdrantChannelFactoryTest {
+
+    private static final int POOL_SIZE = 3;
+
+    private StandInQdrant server;
+    private QdrantChannelFactory factory;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void start() throws Exception {
+        server = StandInQdrant.start("factory-" + UUID.randomUUID());
+        QdrantProperties.Channel config = new QdrantProperties.Channel();
+        config.setPoolSize(POOL_SIZE);
+        config.setDefaultDeadline(Duration.ofSeconds(3));
+        config.setMethodDeadlines(Map.of("Count", Duration.ofSeconds(20)));
+        config.setCompression(QdrantProperties.Compression.GZIP);
+        config.setCompressionMinBytes(1024);
+        config.setExecutorThreads(2);
+        factory = inProcessFactory(config);
+        channel = factory.create(server.name(), 0);
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        factory.close();
+        server.close();
+    }
+
+    @Test
+    void readsAreSpreadOverThePoolAndWritesAreNot() {
+        PointsGrpc.PointsBlockingStub points = PointsGrpc.newBlockingStub(channel);
+        for (int i = 0; i < 3 * POOL_SIZE; i++) {
+            points.search(SearchPoints.getDefaultInstance());
+        }
+        points.upsert(upsert(16));
+
+        assertEquals(3 * POOL_SIZE, server.calls("Search"));
+        assertEquals(List.of(4L, 3L, 3L), factory.getMetrics().getStats().callsPerChannel());
+        ChannelMetrics.MethodStats searches = factory.getMetrics().getStats().methods().get("qdrant.Points/Search");
+        assertEquals(3 * POOL_SIZE, searches.calls());
+        assertEquals(0, searches.failures());
+        assertEquals(0, searches.inFlight());
+    }
+
+    @Test
+    void callsWithoutDeadlineGetTheConfiguredOne() {
+        PointsGrpc.PointsBlockingStub points = PointsGrpc.newBlockingStub(channel);
+
+        points.search(SearchPoints.getDefaultInstance());
+        long searchDeadline = server.deadlineMillis("Search");
+        points.count(CountPoints.getDefaultInstance());
+        long countDeadline = server.deadlineMillis("Count");
+        points.withDeadlineAfter(60, TimeUnit.SECONDS).search(SearchPoints.getDefaultInstance());
+        long callerDeadline = server.deadlineMillis("Search");
+
+        assertTrue(searchDeadline > 0 && searchDeadline <= 3_000, "default deadline, got " + searchDeadline);
+        assertTrue(countDeadline > 3_000 && countDeadline <= 20_000, "method deadline, got " + countDeadline);
+        assertTrue(callerDeadline > 20_000, "caller's deadline, got " + callerDeadline);
+    }
+
+    @Test
+    void onlyUpsertsAreCompressed() {
+        PointsGrpc.PointsBlockingStub points = PointsGrpc.newBlockingStub(channel);
+
+        points.upsert(upsert(64 * 1024));
+        points.search(SearchPoints.getDefaultInstance());
+
+        assertEquals("gzip", server.encoding("Upsert"));
+        assertEquals("null", server.encoding("Search"));
+    }
+
+    @Test
+    void shutdownReachesEveryPooledChannel() throws Exception {
+        PointsGrpc.PointsBlockingStub points = PointsGrpc.newBlockingStub(channel);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            points.search(SearchPoints.getDefaultInstance());
+        }
+
+        channel.shutdown();
+
+        assertTrue(channel.isShutdown());
+        assertTrue(channel.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(channel.isTerminated());
+    }
+
+    /**
+     * A factory whose channels connect to the in-process server named by the host.
+     */
+    static QdrantChannelFactory inProcessFactory(QdrantProperties.Channel config) {
+        return new QdrantChannelFactory(config) {
+            @Override
+            ManagedChannelBuilder<?> transport(String host, int port) {
+                return InProcessChannelBuilder.forName(host);
+            }
+        };
+    }
+
+    private static UpsertPoints upsert(int contentLength) {
+        return UpsertPoints.newBuilder()
+            .addPoints(PointStruct.newBuilder()
+                .putPayload("content", JsonWithInt.Value.newBuilder().setStringValue("x".repeat(contentLength)).build())
+                .build())
+            .build();
+    }
+}
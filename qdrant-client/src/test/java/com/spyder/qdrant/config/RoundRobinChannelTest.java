@@ -0,0 +1,98 @@
+package com.spyder.qdrant.config;
+
+import io.grpc.ManagedChannel;
+import io.grpc.StatusRuntimeException;
+import io.qdrant.client.grpc.Points.CountPoints;
+import io.qdrant.client.grpc.Points.SearchPoints;
+import io.qdrant.client.grpc.Points.UpsertPoints;
+import io.qdrant.client.grpc.PointsGrpc;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Each pooled channel talks to its own in-process server, so the servers show where calls went.
+ */
+class RoundRobinChannelTest {
+
+    private static final int POOL_SIZE = 3;
+
+    private final List<StandInQdrant> servers = new ArrayList<>();
+    private final ChannelMetrics metrics = new ChannelMetrics(POOL_SIZE);
+    private RoundRobinChannel channel;
+
+    @BeforeEach
+    void start() throws Exception {
+        List<ManagedChannel> channels = new ArrayList<>();
+        for (int i = 0; i < POOL_SIZE; i++) {
+            StandInQdrant server = StandInQdrant.start("pool-" + i + "-" + UUID.randomUUID());
+            servers.add(server);
+            channels.add(server.channel());
+        }
+        channel = new RoundRobinChannel(channels, metrics);
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        for (StandInQdrant server : servers) {
+            server.close();
+        }
+    }
+
+    @Test
+    void readsRotateOverThePool() {
+        PointsGrpc.PointsBlockingStub points = PointsGrpc.newBlockingStub(channel);
+        for (int i = 0; i < 4 * POOL_SIZE; i++) {
+            points.search(SearchPoints.getDefaultInstance());
+            points.count(CountPoints.getDefaultInstance());
+        }
+
+        for (StandInQdrant server : servers) {
+            assertEquals(4, server.calls("Search"));
+            assertEquals(4, server.calls("Count"));
+        }
+        assertEquals(List.of(8L, 8L, 8L), metrics.getStats().callsPerChannel());
+    }
+
+    @Test
+    void writesStayOnTheFirstChannel() {
+        PointsGrpc.PointsBlockingStub points = PointsGrpc.newBlockingStub(channel);
+        for (int i = 0; i < 2 * POOL_SIZE; i++) {
+            points.upsert(UpsertPoints.getDefaultInstance());
+        }
+
+        assertEquals(2 * POOL_SIZE, servers.get(0).calls("Upsert"));
+        assertEquals(0, servers.get(1).calls("Upsert"));
+        assertEquals(0, servers.get(2).calls("Upsert"));
+        assertEquals(List.of(6L, 0L, 0L), metrics.getStats().callsPerChannel());
+    }
+
+    @Test
+    void shutdownReachesEveryPooledChannel() throws Exception {
+        PointsGrpc.PointsBlockingStub points = PointsGrpc.newBlockingStub(channel);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            points.search(SearchPoints.getDefaultInstance());
+        }
+        assertFalse(channel.isShutdown());
+
+        channel.shutdown();
+
+        assertTrue(channel.isShutdown());
+        assertTrue(channel.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(channel.isTerminated());
+        for (int i = 0; i < POOL_SIZE; i++) {
+            assertThrows(StatusRuntimeException.class, () -> points.search(SearchPoints.getDefaultInstance()));
+        }
+    }
+}
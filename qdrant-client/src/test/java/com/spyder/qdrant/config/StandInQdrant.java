@@ -0,0 +1,173 @@
+package com.spyder.qdrant.config;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.qdrant.client.grpc.Points.CountPoints;
+import io.qdrant.client.grpc.Points.CountResponse;
+import io.qdrant.client.grpc.Points.PointsOperationResponse;
+import io.qdrant.client.grpc.Points.SearchPoints;
+import io.qdrant.client.grpc.Points.SearchResponse;
+import io.qdrant.client.grpc.Points.UpsertPoints;
+import io.qdrant.client.grpc.PointsGrpc;
+import io.qdrant.client.grpc.QdrantGrpc;
+import io.qdrant.client.grpc.QdrantOuterClass.HealthCheckReply;
+import io.qdrant.client.grpc.QdrantOuterClass.HealthCheckRequest;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process stand-in for a Qdrant server: health checks, search, upsert and count. Records, per
+ * method, the calls, the request encoding and the deadline it saw. Searches can be slowed down and
+ * the server can be made to fail every call with UNAVAILABLE.
+ */
+final class StandInQdrant implements AutoCloseable {
+
+    private static final ScheduledExecutorService RESPONSES = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "stand-in-qdrant");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Metadata.Key<String> ENCODING = Metadata.Key.of("grpc-encoding", Metadata.ASCII_STRING_MARSHALLER);
+
+    private final String name;
+    private final Server server;
+    private final Map<String, LongAdder> calls = new ConcurrentHashMap<>();
+    private final Map<String, String> encodings = new ConcurrentHashMap<>();
+    private final Map<String, Long> deadlineMillis = new ConcurrentHashMap<>();
+    private volatile Duration searchDelay = Duration.ZERO;
+    private volatile boolean unavailable;
+
+    private StandInQdrant(String name) throws IOException {
+        this.name = name;
+        ServerInterceptor recorder = new ServerInterceptor() {
+            @Override
+            public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                         ServerCallHandler<ReqT, RespT> next) {
+                String method = call.getMethodDescriptor().getBareMethodName();
+                calls.computeIfAbsent(method, key -> new LongAdder()).increment();
+                encodings.put(method, String.valueOf(headers.get(ENCODING)));
+                Deadline deadline = Context.current().getDeadline();
+                deadlineMillis.put(method, deadline == null ? -1 : deadline.timeRemaining(TimeUnit.MILLISECONDS));
+                if (unavailable) {
+                    call.close(Status.UNAVAILABLE.withDescription(name + " is down"), new Metadata());
+                    return new ServerCall.Listener<>() {
+                    };
+                }
+                return next.startCall(call, headers);
+            }
+        };
+        this.server = InProcessServerBuilder.forName(name)
+            .directExecutor()
+            .addService(ServerInterceptors.intercept(new Points(), recorder))
+            .addService(ServerInterceptors.intercept(new Health(), recorder))
+            .build()
+            .start();
+    }
+
+    static StandInQdrant start(String name) throws IOException {
+        return new StandInQdrant(name);
+    }
+
+    /**
+     * A channel that runs callbacks on the calling thread, so calls answered immediately, such as
+     * health checks, have completed when they return.
+     */
+    ManagedChannel channel() {
+        return InProcessChannelBuilder.forName(name).directExecutor().build();
+    }
+
+    String name() {
+        return name;
+    }
+
+    long calls(String method) {
+        LongAdder count = calls.get(method);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * The {@code grpc-encoding} of the last call, {@code "null"} when it was sent uncompressed.
+     */
+    String encoding(String method) {
+        return encodings.get(method);
+    }
+
+    /**
+     * Milliseconds left on the deadline of the last call when it arrived, -1 without a deadline.
+     */
+    long deadlineMillis(String method) {
+        return deadlineMillis.get(method);
+    }
+
+    void setSearchDelay(Duration searchDelay) {
+        this.searchDelay = searchDelay;
+    }
+
+    void setUnavailable(boolean unavailable) {
+        this.unavailable = unavailable;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private static <T> void respondAfter(Duration delay, StreamObserver<T> responseObserver, T response) {
+        Runnable respond = () -> {
+            try {
+                responseObserver.onNext(response);
+                responseObserver.onCompleted();
+            } catch (RuntimeException e) {
+                // The client has already given up on the call
+            }
+        };
+        if (delay.isZero()) {
+            respond.run();
+        } else {
+            RESPONSES.schedule(respond, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private class Points extends PointsGrpc.PointsImplBase {
+        @Override
+        public void search(SearchPoints request, StreamObserver<SearchResponse> responseObserver) {
+            respondAfter(searchDelay, responseObserver, SearchResponse.getDefaultInstance());
+        }
+
+        @Override
+        public void upsert(UpsertPoints request, StreamObserver<PointsOperationResponse> responseObserver) {
+            respondAfter(Duration.ZERO, responseObserver, PointsOperationResponse.getDefaultInstance());
+        }
+
+        @Override
+        public void count(CountPoints request, StreamObserver<CountResponse> responseObserver) {
+            respondAfter(Duration.ZERO, responseObserver, CountResponse.getDefaultInstance());
+        }
+    }
+
+    private static class Health extends QdrantGrpc.QdrantImplBase {
+        @Override
+        public void healthCheck(HealthCheckRequest request, StreamObserver<HealthCheckReply> responseObserver) {
+            responseObserver.onNext(HealthCheckReply.newBuilder().setTitle("stand-in").setVersion("0").build());
+            responseObserver.onCompleted();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.spyder.qdrant.service;
+
+import com.spyder.qdrant.config.VectorStoreProperties;
+import io.qdrant.client.grpc.Points;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two stores on one directory stand in for the ingest CLI and the MCP server; refreshes are triggered by hand.
+ */
+class EmbeddedVectorStoreTest {
+
+    private static final int DIMENSIONS = 8;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void changesAreJournaledAndReplayedOnReopen() throws Exception {
+        try (EmbeddedVectorStore store = open(1000)) {
+            for (int i = 0; i < 5; i++) {
+                store.upsertPoints(List.of(point(store, i, "a")));
+            }
+            store.deletePoints(List.of(id(1)));
+        }
+
+        assertFalse(Files.exists(directory.resolve("index.bin")));
+        assertTrue(Files.exists(directory.resolve("journal-0.log")));
+        try (EmbeddedVectorStore store = open(1000)) {
+            assertEquals(4, store.size());
+            assertEquals(id(2), nearest(store, 2));
+            assertEquals(Set.of(id(0), id(2), id(3), id(4)), store.scrollPointIds("a"));
+        }
+    }
+
+    @Test
+    void checkpointsStartANewJournal() throws Exception {
+        try (EmbeddedVectorStore store = open(2)) {
+            for (int i = 0; i < 3; i++) {
+                store.upsertPoints(List.of(point(store, i, "a")));
+            }
+        }
+
+        assertTrue(Files.exists(directory.resolve("index.bin")));
+        assertFalse(Files.exists(directory.resolve("journal-0.log")));
+        assertTrue(Files.exists(directory.resolve("journal-1.log")));
+        try (EmbeddedVectorStore store = open(2)) {
+            assertEquals(3, store.size());
+            assertEquals(id(0), nearest(store, 0));
+        }
+    }
+
+    @Test
+    void halfWrittenEntriesAreDropped() throws Exception {
+        try (EmbeddedVectorStore store = open(1000)) {
+            store.upsertPoints(List.of(point(store, 0, "a")));
+        }
+        Files.write(directory.resolve("journal-0.log"), new byte[]{0, 0, 1, 0, 7}, StandardOpenOption.APPEND);
+
+        try (EmbeddedVectorStore store = open(1000)) {
+            assertEquals(1, store.size());
+            store.upsertPoints(List.of(point(store, 1, "a")));
+        }
+        try (EmbeddedVectorStore store = open(1000)) {
+            assertEquals(2, store.size());
+            assertEquals(id(1), nearest(store, 1));
+        }
+    }
+
+    @Test
+    void storesPickUpEachOthersChangesOnRefresh() throws Exception {
+        try (EmbeddedVectorStore server = open(1000); EmbeddedVectorStore ingest = open(1000)) {
+            ingest.upsertPoints(List.of(point(ingest, 0, "a"), point(ingest, 1, "b")));
+            assertEquals(0, server.size());
+
+            server.refresh();
+            assertEquals(2, server.size());
+            assertEquals(id(1), nearest(server, 1));
+
+            ingest.deleteSource("b");
+            server.refresh();
+            assertEquals(Set.of(), server.scrollPointIds("b"));
+        }
+    }
+
+    @Test
+    void writersApplyEachOthersEntriesBeforeAppending() throws Exception {
+        try (EmbeddedVectorStore first = open(1000); EmbeddedVectorStore second = open(1000)) {
+            first.upsertPoints(List.of(point(first, 0, "a")));
+            second.upsertPoints(List.of(point(second, 1, "a")));
+            first.upsertPoints(List.of(point(first, 2, "a")));
+            assertEquals(3, first.size());
+        }
+        try (EmbeddedVectorStore store = open(1000)) {
+            assertEquals(3, store.size());
+            for (int i = 0; i < 3; i++) {
+                assertEquals(id(i), nearest(store, i));
+            }
+        }
+    }
+
+    @Test
+    void compactionKeepsVectorFilesThatAreStillMapped() throws Exception {
+        try (EmbeddedVectorStore server = open(1); EmbeddedVectorStore ingest = open(1)) {
+            ingest.upsertPoints(List.of(point(ingest, 0, "a"), point(ingest, 1, "a"), point(ingest, 2, "b"), point(ingest, 3, "b")));
+            server.refresh();
+            ingest.deleteSource("b");
+
+            assertTrue(Files.exists(directory.resolve("vectors-1.f32")));
+            assertTrue(Files.exists(directory.resolve("vectors-0.f32")));
+            assertEquals(id(3), nearest(server, 3));
+
+            server.refresh();
+            assertEquals(2, server.size());
+            ingest.upsertPoints(List.of(point(ingest, 4, "a")));
+            assertFalse(Files.exists(directory.resolve("vectors-0.f32")));
+            server.refresh();
+            assertEquals(id(4), nearest(server, 4));
+        }
+    }
+
+    private EmbeddedVectorStore open(int checkpointInterval) throws Exception {
+        VectorStoreProperties.Embedded config = new VectorStoreProperties.Embedded();
+        config.setCheckpointInterval(checkpointInterval);
+        config.setRefreshInterval(Duration.ZERO);
+        return EmbeddedVectorStore.open(directory, DIMENSIONS, config);
+    }
+
+    private static Points.PointStruct point(VectorStore store, int axis, String source) {
+        return store.createDocumentPoint(id(axis), "chunk " + axis, unit(axis), Map.of("source", source));
+    }
+
+    private static String nearest(VectorStore store, int axis) throws Exception {
+        return store.searchSimilarVectorsAsync(unit(axis), 1, null, null, null).get().getFirst().getId().getUuid();
+    }
+
+    private static float[] unit(int axis) {
+        float[] vector = new float[DIMENSIONS];
+        vector[axis] = 1;
+        return vector;
+    }
+
+    private static String id(int axis) {
+        return "00000000-0000-0000-0000-00000000000" + axis;
+    }
+}
@@ -0,0 +1,107 @@
+package com.spyder.qdrant.service;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The SIMD kernels must produce the same numbers as the scalar ones, up to float rounding.
+ * Dimensions around the vector widths cover the tail loops; surefire enables jdk.incubator.vector.
+ */
+class VectorKernelsTest {
+
+    private static final float TOLERANCE = 1e-5f;
+    private static final int[] DIMENSIONS = {1, 3, 7, 8, 9, 15, 16, 17, 31, 32, 33, 64, 65, 384, 387, 1031};
+
+    private final VectorKernels scalar = new ScalarVectorKernels();
+    private final VectorKernels simd = new SimdVectorKernels();
+
+    static Stream<Arguments> dimensionsAndMasks() {
+        return Arrays.stream(DIMENSIONS).boxed()
+            .flatMap(dim -> Stream.of("mixed", "all ones", "all zeros").map(mask -> Arguments.of(dim, mask)));
+    }
+
+    @ParameterizedTest(name = "dim {0}, mask {1}")
+    @MethodSource("dimensionsAndMasks")
+    void maskedMeanPoolMatchesScalar(int dim, String maskKind) {
+        Random random = new Random(dim);
+        int seqLen = 9;
+        int rowOffset = 2 * seqLen * dim;
+        float[] hidden = randomFloats(random, 3 * seqLen * dim);
+        long[] maskValues = new long[2 + 3 * seqLen];
+        for (int i = 0; i < seqLen; i++) {
+            maskValues[2 + 2 * seqLen + i] = switch (maskKind) {
+                case "all ones" -> 1;
+                case "all zeros" -> 0;
+                default -> i < 6 ? 1 : 0;
+            };
+        }
+        LongBuffer mask = LongBuffer.wrap(maskValues);
+
+        float[] expected = new float[dim];
+        float[] actual = new float[dim];
+        scalar.maskedMeanPool(hidden, rowOffset, mask, 2 + 2 * seqLen, seqLen, expected);
+        simd.maskedMeanPool(hidden, rowOffset, mask, 2 + 2 * seqLen, seqLen, actual);
+
+        assertArrayEquals(expected, actual, TOLERANCE);
+        if (maskKind.equals("all zeros")) {
+            assertArrayEquals(new float[dim], actual);
+        }
+    }
+
+    @ParameterizedTest(name = "dim {0}")
+    @MethodSource("dimensions")
+    void l2NormalizeMatchesScalar(int dim) {
+        float[] expected = randomFloats(new Random(dim), dim);
+        float[] actual = expected.clone();
+
+        scalar.l2Normalize(expected);
+        simd.l2Normalize(actual);
+
+        assertArrayEquals(expected, actual, TOLERANCE);
+        assertEquals(1.0f, scalar.dot(actual, 0, actual, 0, dim), TOLERANCE * dim);
+    }
+
+    @ParameterizedTest(name = "dim {0}")
+    @ValueSource(ints = {1, 16, 387})
+    void l2NormalizeLeavesZeroVectors(int dim) {
+        float[] vector = new float[dim];
+
+        simd.l2Normalize(vector);
+
+        assertArrayEquals(new float[dim], vector);
+    }
+
+    @ParameterizedTest(name = "dim {0}")
+    @MethodSource("dimensions")
+    void dotMatchesScalar(int dim) {
+        Random random = new Random(dim);
+        float[] a = randomFloats(random, dim + 5);
+        float[] b = randomFloats(random, 2 * dim);
+
+        assertEquals(scalar.dot(a, 0, b, 0, dim), simd.dot(a, 0, b, 0, dim), TOLERANCE * dim);
+        assertEquals(scalar.dot(a, 5, b, dim, dim), simd.dot(a, 5, b, dim, dim), TOLERANCE * dim);
+    }
+
+    static IntStream dimensions() {
+        return Arrays.stream(DIMENSIONS);
+    }
+
+    private static float[] randomFloats(Random random, int length) {
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = random.nextFloat() * 2 - 1;
+        }
+        return values;
+    }
+}